@@ -0,0 +1,144 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+// Single-pair A* over a CompactGraph, guided by great-circle distance to the target.
+// Route lengths in the data are road km, which need not dominate the straight line, so the
+// heuristic is scale * haversine, with scale the smallest route-km / great-circle-km ratio over
+// all routes. By the triangle inequality that bound is admissible and consistent for any path.
+// When the coordinates give no positive bound (missing or invalid coordinates, or a zero-length
+// route between distinct points) the scale is 0 and the search is plain early-exit Dijkstra.
+class AStarRouter {
+    private static final double EARTH_RADIUS_KM = 6371.0;
+    // Shaves the scale so floating-point error can never overestimate
+    private static final double SAFETY = 1 - 1e-9;
+
+    private final CompactGraph graph;
+    private final double[] latitudes;  // radians
+    private final double[] longitudes; // radians
+    private final double[] cosLatitudes;
+    private final double scale; // km-per-great-circle-km factor applied to the heuristic; 0 means unguided
+
+    // latitudes and longitudes are in degrees, indexed by the graph's state ids
+    AStarRouter(CompactGraph graph, double[] latitudes, double[] longitudes) {
+        int n = graph.size();
+        this.graph = graph;
+        this.latitudes = new double[n];
+        this.longitudes = new double[n];
+        this.cosLatitudes = new double[n];
+
+        boolean valid = true;
+        for (int v = 0; v < n; v++) {
+            double lat = latitudes[v];
+            double lon = longitudes[v];
+            if (!(Math.abs(lat) <= 90 && Math.abs(lon) <= 180)) { // also rejects NaN
+                valid = false;
+                break;
+            }
+            this.latitudes[v] = Math.toRadians(lat);
+            this.longitudes[v] = Math.toRadians(lon);
+            this.cosLatitudes[v] = Math.cos(this.latitudes[v]);
+        }
+        this.scale = valid ? admissibleScale() : 0;
+    }
+
+    private double admissibleScale() {
+        int[] offsets = graph.offsets();
+        int[] targets = graph.targets();
+        int[] weights = graph.weights();
+        double scale = Double.POSITIVE_INFINITY;
+        for (int v = 0; v < graph.size(); v++) {
+            for (int e = offsets[v]; e < offsets[v + 1]; e++) {
+                double straight = greatCircle(v, targets[e]);
+                if (straight > 0) {
+                    scale = Math.min(scale, weights[e] / straight);
+                }
+            }
+        }
+        // No route between distinct points says nothing; stay unguided
+        return Double.isInfinite(scale) ? 0 : scale * SAFETY;
+    }
+
+    CompactGraph graph() {
+        return graph;
+    }
+
+    public boolean isGuided() {
+        return scale > 0;
+    }
+
+    public Route route(int source, int target) {
+        return route(source, target, isGuided());
+    }
+
+    // guided=false forces plain Dijkstra that stops at the target, for comparison
+    public Route route(int source, int target, boolean guided) {
+        long start = Metrics.start();
+        guided &= isGuided();
+        int n = graph.size();
+        int[] offsets = graph.offsets();
+        int[] targets = graph.targets();
+        int[] weights = graph.weights();
+
+        int[] distances = new int[n];
+        int[] previous = new int[n];
+        boolean[] settled = new boolean[n];
+        Arrays.fill(distances, CompactGraph.UNREACHABLE);
+        Arrays.fill(previous, CompactGraph.NO_PREVIOUS);
+
+        IndexedMinHeap queue = new IndexedMinHeap(n);
+        distances[source] = 0;
+        queue.insertOrDecrease(source, guided ? heuristic(source, target) : 0);
+        int settledCount = 0;
+
+        while (!queue.isEmpty()) {
+            int current = queue.pollMin();
+            settled[current] = true;
+            settledCount++;
+            if (current == target) break;
+
+            int currentDistance = distances[current];
+            for (int e = offsets[current], end = offsets[current + 1]; e < end; e++) {
+                int next = targets[e];
+                int newDist = currentDistance + weights[e];
+                // The heuristic is consistent, so a settled node never improves
+                if (!settled[next] && newDist < distances[next]) {
+                    distances[next] = newDist;
+                    previous[next] = current;
+                    queue.insertOrDecrease(next, guided ? saturatedAdd(newDist, heuristic(next, target)) : newDist);
+                }
+            }
+        }
+
+        List<String> path = new ArrayList<>();
+        if (distances[target] != CompactGraph.UNREACHABLE) {
+            for (int current = target; current != CompactGraph.NO_PREVIOUS; current = previous[current]) {
+                path.add(graph.nameOf(current));
+            }
+            Collections.reverse(path);
+        }
+
+        Metrics.count(Metrics.Counter.SETTLED_NODES, settledCount);
+        Metrics.count(Metrics.Counter.HEAP_PUSHES, queue.pushCount());
+        Metrics.stop(Metrics.Phase.ROUTE, start);
+        return new Route(path, distances[target], settledCount, guided ? "A*" : "Dijkstra");
+    }
+
+    // Floored so keys stay integral; the floor of a consistent integer-offset bound is still consistent
+    private int heuristic(int v, int target) {
+        return (int) Math.min(Integer.MAX_VALUE, Math.floor(scale * greatCircle(v, target)));
+    }
+
+    private double greatCircle(int a, int b) {
+        double sinLat = Math.sin((latitudes[b] - latitudes[a]) / 2);
+        double sinLon = Math.sin((longitudes[b] - longitudes[a]) / 2);
+        double h = sinLat * sinLat + cosLatitudes[a] * cosLatitudes[b] * sinLon * sinLon;
+        return 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1, Math.sqrt(h)));
+    }
+
+    private static int saturatedAdd(int a, int b) {
+        long sum = (long) a + b;
+        return sum >= Integer.MAX_VALUE ? Integer.MAX_VALUE - 1 : (int) sum;
+    }
+}
@@ -0,0 +1,44 @@
+// Picks an engine from the DP table size and the time budget:
+// the exact DP when its n x capacity cells fit the budget and memory, otherwise branch and bound,
+// topped up by the FPTAS when branch and bound cannot prove a tight enough gap in time.
+class AutoKnapsackEngine implements KnapsackEngine {
+    // Rough single-core DP throughput, used only to decide whether the DP fits the budget
+    private static final double DP_CELLS_PER_NANO = 0.5;
+    // Largest decision table (bits) the DP may allocate
+    private static final long DP_MAX_CELLS = 1L << 33;
+
+    private final long timeBudgetNanos;
+    private final boolean parallel;
+    private final double epsilon;
+
+    AutoKnapsackEngine(long timeBudgetNanos, boolean parallel, double epsilon) {
+        this.timeBudgetNanos = timeBudgetNanos;
+        this.parallel = parallel;
+        this.epsilon = epsilon;
+    }
+
+    @Override
+    public String name() {
+        return "auto";
+    }
+
+    @Override
+    public KnapsackSolution solve(int[] weights, double[] profits, int capacity) {
+        long cells = (long) weights.length * (capacity + 1L);
+        int cores = parallel ? Runtime.getRuntime().availableProcessors() : 1;
+        double estimatedNanos = cells / (DP_CELLS_PER_NANO * cores);
+
+        if (cells <= DP_MAX_CELLS && estimatedNanos <= timeBudgetNanos) {
+            return new DynamicProgrammingEngine(parallel).solve(weights, profits, capacity);
+        }
+
+        KnapsackSolution solution = new BranchAndBoundEngine(timeBudgetNanos).solve(weights, profits, capacity);
+        if (solution.optimalityGap() <= epsilon) {
+            return solution;
+        }
+        KnapsackSolution approximate = new FptasEngine(epsilon).solve(weights, profits, capacity);
+        KnapsackSolution better = approximate.profit > solution.profit ? approximate : solution;
+        double upperBound = Math.min(solution.upperBound, approximate.upperBound);
+        return new KnapsackSolution(better.engine, better.selected, better.profit, upperBound);
+    }
+}
@@ -0,0 +1,116 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// Headless mode: plans every (farmerState, vehicleCapacity) row of a query file against one loaded
+// dataset, running queries concurrently and writing results in input order
+class BatchPlanner {
+    // Queries allowed in flight per worker; bounds memory held by finished-but-unwritten results
+    private static final int IN_FLIGHT_PER_THREAD = 4;
+
+    private final StateGraph graph;
+    private final ProfitOptimizer optimizer;
+    private final int threads;
+    private final boolean tours; // one multi-stop trip per query instead of a trip per destination
+
+    BatchPlanner(StateGraph graph, ProfitOptimizer optimizer, int threads) {
+        this(graph, optimizer, threads, false);
+    }
+
+    BatchPlanner(StateGraph graph, ProfitOptimizer optimizer, int threads, boolean tours) {
+        this.graph = graph;
+        this.optimizer = optimizer;
+        this.threads = threads;
+        this.tours = tours;
+    }
+
+    // Returns the number of queries processed
+    public int run(String queryFile, PrintWriter outputWriter) throws IOException, InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        Deque<Future<String>> pending = new ArrayDeque<>();
+        int count = 0;
+
+        try (BufferedReader br = Files.newBufferedReader(Paths.get(queryFile), StandardCharsets.UTF_8)) {
+            String line;
+            int lineNumber = 0;
+            while ((line = br.readLine()) != null) {
+                lineNumber++;
+                if (line.trim().isEmpty()) continue;
+                // Skip a header row such as "farmer_state,vehicle_capacity"
+                if (lineNumber == 1 && !isQuery(line)) continue;
+
+                final int queryNumber = ++count;
+                final String query = line;
+                pending.addLast(executor.submit(() -> planQuery(queryNumber, query)));
+
+                if (pending.size() >= threads * IN_FLIGHT_PER_THREAD) {
+                    outputWriter.print(await(pending.removeFirst()));
+                }
+            }
+            while (!pending.isEmpty()) {
+                outputWriter.print(await(pending.removeFirst()));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        outputWriter.flush();
+        return count;
+    }
+
+    private String planQuery(int queryNumber, String line) {
+        StringWriter buffer = new StringWriter();
+        PrintWriter writer = new PrintWriter(buffer);
+        String[] data = line.split(",");
+        writer.printf("=== Query %d: %s ===\n", queryNumber, line.trim());
+
+        try {
+            if (data.length < 2) {
+                throw new IllegalArgumentException("Expected farmerState,vehicleCapacity");
+            }
+            String farmerState = data[0].trim();
+            int vehicleCapacity = Integer.parseInt(data[1].trim());
+
+            ProfitOptimizer.OptimizationResult result =
+                    optimizer.optimizeDistribution(farmerState, vehicleCapacity, graph);
+            if (tours) {
+                optimizer.printTour(optimizer.planTour(result), result, writer);
+            } else {
+                optimizer.printOptimalSolution(result, graph, writer);
+            }
+        } catch (RuntimeException e) {
+            writer.println("Error: " + e.getMessage());
+        }
+        writer.println();
+        writer.flush();
+        return buffer.toString();
+    }
+
+    private static boolean isQuery(String line) {
+        String[] data = line.split(",");
+        if (data.length < 2) return false;
+        try {
+            Integer.parseInt(data[1].trim());
+            return true;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    private static String await(Future<String> future) throws InterruptedException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            return "Error: " + e.getCause() + "\n\n";
+        }
+    }
+}
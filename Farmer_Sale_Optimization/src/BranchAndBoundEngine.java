@@ -0,0 +1,111 @@
+// Exact depth-first branch and bound over ratio-sorted items, pruned by the fractional LP bound.
+// Cost does not depend on capacity; if the time budget runs out it returns the best plan found
+// so far together with the root bound. The dive goes one level per item, so it keeps its own
+// stack in arrays rather than recursing (tens of thousands of items would overflow the thread's).
+class BranchAndBoundEngine implements KnapsackEngine {
+    private static final int DEADLINE_CHECK_INTERVAL = 1024;
+
+    private final long timeBudgetNanos;
+
+    BranchAndBoundEngine(long timeBudgetNanos) {
+        this.timeBudgetNanos = timeBudgetNanos;
+    }
+
+    @Override
+    public String name() {
+        return "branch-and-bound";
+    }
+
+    @Override
+    public KnapsackSolution solve(int[] weights, double[] profits, int capacity) {
+        Search search = new Search(new LinearRelaxation(weights, profits, capacity),
+                System.nanoTime() + timeBudgetNanos);
+        search.run(capacity);
+        Metrics.count(Metrics.Counter.SEARCH_NODES, search.nodes);
+
+        LinearRelaxation items = search.items;
+        int count = 0;
+        for (boolean taken : search.bestTaken) {
+            if (taken) count++;
+        }
+        int[] selected = new int[count];
+        for (int i = items.size() - 1, k = 0; i >= 0; i--) {
+            if (search.bestTaken[i]) selected[k++] = items.order[i];
+        }
+
+        double upperBound = search.aborted ? items.bound(0, capacity, 0) : search.bestProfit;
+        return new KnapsackSolution(name(), selected, search.bestProfit, upperBound);
+    }
+
+    private static class Search {
+        // What a level has done so far
+        private static final byte ENTERED = 0;
+        private static final byte TOOK = 1;    // the take branch has been explored
+        private static final byte SKIPPED = 2; // both branches have been explored
+
+        final LinearRelaxation items;
+        final long deadline;
+        final boolean[] taken;
+        final boolean[] bestTaken;
+        double bestProfit;
+        long nodes;
+        boolean aborted;
+
+        Search(LinearRelaxation items, long deadline) {
+            this.items = items;
+            this.deadline = deadline;
+            this.taken = new boolean[items.size()];
+            this.bestTaken = new boolean[items.size()];
+        }
+
+        // Level i decides item i, starting from remainingAt[i] and profitAt[i]
+        void run(long capacity) {
+            int n = items.size();
+            long[] remainingAt = new long[n + 1];
+            double[] profitAt = new double[n + 1];
+            byte[] stage = new byte[n + 1];
+            remainingAt[0] = capacity;
+            int i = 0;
+            while (i >= 0) {
+                if (stage[i] == ENTERED) {
+                    if (++nodes % DEADLINE_CHECK_INTERVAL == 0 && System.nanoTime() > deadline) {
+                        aborted = true;
+                        return;
+                    }
+                    double profit = profitAt[i];
+                    if (profit > bestProfit) {
+                        bestProfit = profit;
+                        System.arraycopy(taken, 0, bestTaken, 0, taken.length);
+                    }
+                    if (i == n || items.bound(i, remainingAt[i], profit) <= bestProfit) {
+                        i--;
+                        continue;
+                    }
+                    stage[i] = TOOK;
+                    // Taking the best-ratio item first reaches the greedy solution on the first dive
+                    if (items.weights[i] <= remainingAt[i]) {
+                        taken[i] = true;
+                        i = descend(i, remainingAt[i] - items.weights[i], profit + items.profits[i],
+                                remainingAt, profitAt, stage);
+                        continue;
+                    }
+                }
+                if (stage[i] == TOOK) {
+                    taken[i] = false;
+                    stage[i] = SKIPPED;
+                    i = descend(i, remainingAt[i], profitAt[i], remainingAt, profitAt, stage);
+                    continue;
+                }
+                i--;
+            }
+        }
+
+        private static int descend(int i, long remaining, double profit, long[] remainingAt, double[] profitAt,
+                                   byte[] stage) {
+            remainingAt[i + 1] = remaining;
+            profitAt[i + 1] = profit;
+            stage[i + 1] = ENTERED;
+            return i + 1;
+        }
+    }
+}
@@ -0,0 +1,160 @@
+import java.util.Arrays;
+
+// Every knapsack candidate of one plan as parallel arrays: weights(), profits() and days() go to the
+// solvers as they are. Candidates are grouped by destination in generation order; KnapsackItem
+// objects are only made for the few a plan selects.
+final class CandidateSet {
+    private final CatalogArrays catalog;
+    private final int size;
+    private final int[] state;
+    private final int[] food;
+    private final int[] quantity;
+    private final double[] weight;
+    private final double[] profit;
+    private final int[] days;
+    private final int[] destinations;     // state index per destination group
+    private final int[] destinationStart; // group g is destinationStart[g] until destinationStart[g + 1]
+
+    private CandidateSet(CatalogArrays catalog, int size, int[] state, int[] food, int[] quantity,
+                         double[] weight, double[] profit, int[] days, int[] destinations, int[] destinationStart) {
+        this.catalog = catalog;
+        this.size = size;
+        this.state = state;
+        this.food = food;
+        this.quantity = quantity;
+        this.weight = weight;
+        this.profit = profit;
+        this.days = days;
+        this.destinations = destinations;
+        this.destinationStart = destinationStart;
+    }
+
+    int size() {
+        return size;
+    }
+
+    // Item weights in kg
+    double[] weights() {
+        return weight;
+    }
+
+    double[] profits() {
+        return profit;
+    }
+
+    int[] days() {
+        return days;
+    }
+
+    int destinationCount() {
+        return destinations.length;
+    }
+
+    String destination(int group) {
+        return catalog.states[destinations[group]];
+    }
+
+    int destinationSize(int group) {
+        return destinationStart[group + 1] - destinationStart[group];
+    }
+
+    ProfitOptimizer.KnapsackItem item(int index) {
+        return new ProfitOptimizer.KnapsackItem(catalog.foodNames[food[index]], catalog.states[state[index]],
+                quantity[index], weight[index], profit[index], days[index]);
+    }
+
+    // Appends candidates one destination group at a time; also holds scratch rows, one slot per
+    // demand cell of a state, for the generating loops
+    static final class Builder {
+        final CatalogArrays catalog;
+        final int[] unitsScratch;
+        final double[] profitScratch;
+        private int size;
+        private int[] state;
+        private int[] food;
+        private int[] quantity;
+        private double[] weight;
+        private double[] profit;
+        private int[] days;
+        private int groups;
+        private int[] destinations;
+        private int[] destinationStart;
+
+        // Sized for one candidate per demand cell, which is exact unless quantities are split
+        Builder(CatalogArrays catalog) {
+            this.catalog = catalog;
+            this.unitsScratch = new int[catalog.maxRowLength];
+            this.profitScratch = new double[catalog.maxRowLength];
+            int capacity = Math.max(16, catalog.cellCount());
+            state = new int[capacity];
+            food = new int[capacity];
+            quantity = new int[capacity];
+            weight = new double[capacity];
+            profit = new double[capacity];
+            days = new int[capacity];
+            destinations = new int[catalog.states.length + 1];
+            destinationStart = new int[catalog.states.length + 2];
+        }
+
+        CatalogArrays catalog() {
+            return catalog;
+        }
+
+        void startDestination(int state) {
+            if (groups == destinations.length) {
+                destinations = Arrays.copyOf(destinations, groups * 2);
+                destinationStart = Arrays.copyOf(destinationStart, groups * 2 + 1);
+            }
+            destinations[groups] = state;
+            destinationStart[groups] = size;
+            groups++;
+        }
+
+        void add(int foodIndex, int units, double itemWeight, double itemProfit, int deliveryDays) {
+            if (size == food.length) {
+                grow(size * 2);
+            }
+            state[size] = destinations[groups - 1];
+            food[size] = foodIndex;
+            quantity[size] = units;
+            weight[size] = itemWeight;
+            profit[size] = itemProfit;
+            days[size] = deliveryDays;
+            size++;
+        }
+
+        // Copies one destination group of an earlier set unchanged
+        void addDestination(CandidateSet set, int group) {
+            startDestination(set.destinations[group]);
+            int from = set.destinationStart[group];
+            int count = set.destinationSize(group);
+            if (size + count > food.length) {
+                grow(Math.max(size * 2, size + count));
+            }
+            System.arraycopy(set.state, from, state, size, count);
+            System.arraycopy(set.food, from, food, size, count);
+            System.arraycopy(set.quantity, from, quantity, size, count);
+            System.arraycopy(set.weight, from, weight, size, count);
+            System.arraycopy(set.profit, from, profit, size, count);
+            System.arraycopy(set.days, from, days, size, count);
+            size += count;
+        }
+
+        private void grow(int capacity) {
+            state = Arrays.copyOf(state, capacity);
+            food = Arrays.copyOf(food, capacity);
+            quantity = Arrays.copyOf(quantity, capacity);
+            weight = Arrays.copyOf(weight, capacity);
+            profit = Arrays.copyOf(profit, capacity);
+            days = Arrays.copyOf(days, capacity);
+        }
+
+        CandidateSet build() {
+            int[] starts = Arrays.copyOf(destinationStart, groups + 1);
+            starts[groups] = size;
+            return new CandidateSet(catalog, size, Arrays.copyOf(state, size), Arrays.copyOf(food, size),
+                    Arrays.copyOf(quantity, size), Arrays.copyOf(weight, size), Arrays.copyOf(profit, size),
+                    Arrays.copyOf(days, size), Arrays.copyOf(destinations, groups), starts);
+        }
+    }
+}
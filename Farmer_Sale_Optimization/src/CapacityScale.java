@@ -0,0 +1,70 @@
+// Maps kilogram weights onto the integer axis the knapsack DP indexes by.
+// Item weights are rounded up to the resolution (so a plan never overloads the truck),
+// then the whole axis is divided by the GCD of the rounded weights.
+class CapacityScale {
+    private static final double EPSILON = 1e-9;
+
+    final double resolution;    // requested kg per step
+    final double unitWeight;    // kg per DP cell after GCD compression
+    final int capacityUnits;
+    final int[] itemUnits;
+    final double roundingErrorKg;    // total kg added by rounding item weights up
+    final double maxRelativeError;   // worst per-item overstatement, as a fraction of its weight
+    final double unusedCapacityKg;   // capacity lost by flooring it to a whole cell
+
+    private CapacityScale(double resolution, double unitWeight, int capacityUnits, int[] itemUnits,
+                          double roundingErrorKg, double maxRelativeError, double unusedCapacityKg) {
+        this.resolution = resolution;
+        this.unitWeight = unitWeight;
+        this.capacityUnits = capacityUnits;
+        this.itemUnits = itemUnits;
+        this.roundingErrorKg = roundingErrorKg;
+        this.maxRelativeError = maxRelativeError;
+        this.unusedCapacityKg = unusedCapacityKg;
+    }
+
+    public static CapacityScale discretize(double[] weights, int capacityKg, double resolution) {
+        if (resolution <= 0) {
+            throw new IllegalArgumentException("Weight resolution must be positive: " + resolution);
+        }
+
+        int n = weights.length;
+        long[] steps = new long[n];
+        long gcd = 0;
+        double roundingError = 0;
+        double maxRelativeError = 0;
+
+        for (int i = 0; i < n; i++) {
+            double weight = weights[i];
+            steps[i] = (long) Math.ceil(weight / resolution - EPSILON);
+            double error = steps[i] * resolution - weight;
+            if (error > EPSILON) {
+                roundingError += error;
+                maxRelativeError = Math.max(maxRelativeError, error / weight);
+            }
+            gcd = gcd(gcd, steps[i]);
+        }
+        if (gcd == 0) gcd = 1;
+
+        double unitWeight = resolution * gcd;
+        int capacityUnits = (int) Math.floor(capacityKg / unitWeight + EPSILON);
+        int[] itemUnits = new int[n];
+        for (int i = 0; i < n; i++) {
+            // Anything wider than the truck can never be chosen; clamp so it stays an int
+            itemUnits[i] = (int) Math.min(steps[i] / gcd, capacityUnits + 1L);
+        }
+
+        double unusedCapacity = Math.max(0, capacityKg - capacityUnits * unitWeight);
+        return new CapacityScale(resolution, unitWeight, capacityUnits, itemUnits,
+                roundingError, maxRelativeError, unusedCapacity);
+    }
+
+    private static long gcd(long a, long b) {
+        while (b != 0) {
+            long t = a % b;
+            a = b;
+            b = t;
+        }
+        return a;
+    }
+}
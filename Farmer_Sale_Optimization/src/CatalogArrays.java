@@ -0,0 +1,105 @@
+import java.util.HashMap;
+import java.util.Map;
+
+// Column-wise copy of one catalog version for candidate generation. Demand is a states x foods
+// matrix stored by rows of its non-zero cells (most states ask for a few of the foods), and each
+// cell carries its food's price, costs, weight and resilience in parallel arrays, so one state's
+// row is a contiguous stretch of primitive arrays: candidate loops run over it without nested maps,
+// per-pair String lookups or gathers. Built once per catalog version; never modified.
+final class CatalogArrays {
+    final String[] foodNames;
+    final String[] states;  // states with any demand, in the catalog's iteration order
+    final int[] rowStart;   // state s's cells are rowStart[s] until rowStart[s + 1]
+    final int maxRowLength;
+
+    // Per demand cell
+    final int[] food;
+    final int[] demand;
+    final double[] price;
+    final double[] productionCost;
+    final double[] weight;
+    final double[] transportCostPerMile;
+    final double[] resilience; // 1 - growingTime / 100: how much freshness survives transport
+
+    private final Map<String, Integer> stateIndex;
+
+    private CatalogArrays(String[] foodNames, String[] states, int[] rowStart, int maxRowLength, int[] food,
+                          int[] demand, double[] price, double[] productionCost, double[] weight,
+                          double[] transportCostPerMile, double[] resilience, Map<String, Integer> stateIndex) {
+        this.foodNames = foodNames;
+        this.states = states;
+        this.rowStart = rowStart;
+        this.maxRowLength = maxRowLength;
+        this.food = food;
+        this.demand = demand;
+        this.price = price;
+        this.productionCost = productionCost;
+        this.weight = weight;
+        this.transportCostPerMile = transportCostPerMile;
+        this.resilience = resilience;
+        this.stateIndex = stateIndex;
+    }
+
+    // Demands for foods missing from the catalog are dropped, since nothing can be priced for them
+    static CatalogArrays build(Map<String, FoodItem> foodItems, Map<String, Map<String, Integer>> stateDemands) {
+        String[] foodNames = new String[foodItems.size()];
+        FoodItem[] foods = new FoodItem[foodItems.size()];
+        Map<String, Integer> foodIndex = new HashMap<>();
+        for (FoodItem item : foodItems.values()) {
+            foodNames[foodIndex.size()] = item.name;
+            foods[foodIndex.size()] = item;
+            foodIndex.put(item.name, foodIndex.size());
+        }
+
+        int cells = 0;
+        for (Map<String, Integer> demands : stateDemands.values()) {
+            cells += demands.size();
+        }
+        String[] states = new String[stateDemands.size()];
+        int[] rowStart = new int[states.length + 1];
+        int[] food = new int[cells];
+        int[] demand = new int[cells];
+        double[] price = new double[cells];
+        double[] productionCost = new double[cells];
+        double[] weight = new double[cells];
+        double[] transportCostPerMile = new double[cells];
+        double[] resilience = new double[cells];
+        Map<String, Integer> stateIndex = new HashMap<>();
+        int maxRowLength = 0;
+        int cell = 0;
+        int s = 0;
+        for (Map.Entry<String, Map<String, Integer>> row : stateDemands.entrySet()) {
+            states[s] = row.getKey();
+            stateIndex.put(row.getKey(), s);
+            rowStart[s] = cell;
+            for (Map.Entry<String, Integer> entry : row.getValue().entrySet()) {
+                Integer f = foodIndex.get(entry.getKey());
+                if (f == null) continue;
+                FoodItem item = foods[f];
+                food[cell] = f;
+                demand[cell] = entry.getValue();
+                price[cell] = item.pricePerUnit;
+                productionCost[cell] = item.productionCost;
+                weight[cell] = item.weight;
+                transportCostPerMile[cell] = item.transportCostPerMile;
+                resilience[cell] = 1.0 - (item.growingTime / 100.0);
+                cell++;
+            }
+            maxRowLength = Math.max(maxRowLength, cell - rowStart[s]);
+            s++;
+        }
+        rowStart[s] = cell;
+        return new CatalogArrays(foodNames, states, rowStart, maxRowLength, food, demand, price, productionCost,
+                weight, transportCostPerMile, resilience, stateIndex);
+    }
+
+    int cellCount() {
+        return rowStart[states.length];
+    }
+
+    // -1 when the state has no demand
+    int stateIndex(String state) {
+        Integer index = stateIndex.get(state);
+        return index == null ? -1 : index;
+    }
+}
@@ -0,0 +1,181 @@
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+// Immutable compressed-sparse-row view of the route graph, keyed by dense state ids
+class CompactGraph {
+    static final int UNREACHABLE = Integer.MAX_VALUE;
+    static final int NO_PREVIOUS = -1;
+
+    private final String[] names;
+    private final Map<String, Integer> ids;
+    private final int[] offsets; // edges of node v are [offsets[v], offsets[v + 1])
+    private final int[] targets;
+    private final int[] weights;
+
+    private CompactGraph(String[] names, Map<String, Integer> ids,
+                         int[] offsets, int[] targets, int[] weights) {
+        this.names = names;
+        this.ids = ids;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.weights = weights;
+    }
+
+    static CompactGraph build(String[] names, Map<String, Map<String, Integer>> routes) {
+        int n = names.length;
+        Map<String, Integer> ids = indexNames(names);
+
+        int[] offsets = new int[n + 1];
+        for (Map.Entry<String, Map<String, Integer>> entry : routes.entrySet()) {
+            Integer from = ids.get(entry.getKey());
+            if (from != null) {
+                offsets[from + 1] = entry.getValue().size();
+            }
+        }
+        for (int v = 0; v < n; v++) {
+            offsets[v + 1] += offsets[v];
+        }
+
+        int[] targets = new int[offsets[n]];
+        int[] weights = new int[offsets[n]];
+        int[] next = Arrays.copyOf(offsets, n);
+        for (Map.Entry<String, Map<String, Integer>> entry : routes.entrySet()) {
+            Integer from = ids.get(entry.getKey());
+            if (from == null) continue;
+            for (Map.Entry<String, Integer> edge : entry.getValue().entrySet()) {
+                Integer to = ids.get(edge.getKey());
+                if (to == null) continue;
+                int slot = next[from]++;
+                targets[slot] = to;
+                weights[slot] = edge.getValue();
+            }
+        }
+
+        return new CompactGraph(names, ids, offsets, targets, weights);
+    }
+
+    // Wraps arrays that are already in CSR layout, e.g. read back from a snapshot
+    static CompactGraph of(String[] names, int[] offsets, int[] targets, int[] weights) {
+        if (offsets.length != names.length + 1 || targets.length != offsets[names.length]
+                || weights.length != targets.length) {
+            throw new IllegalArgumentException("Inconsistent CSR arrays");
+        }
+        return new CompactGraph(names, indexNames(names), offsets, targets, weights);
+    }
+
+    private static Map<String, Integer> indexNames(String[] names) {
+        Map<String, Integer> ids = new HashMap<>(names.length * 2);
+        for (int i = 0; i < names.length; i++) {
+            ids.put(names[i], i);
+        }
+        return ids;
+    }
+
+    public int size() {
+        return names.length;
+    }
+
+    public int edgeCount() {
+        return targets.length;
+    }
+
+    public int idOf(String name) {
+        Integer id = ids.get(name);
+        return id == null ? -1 : id;
+    }
+
+    public String nameOf(int id) {
+        return names[id];
+    }
+
+    // Raw CSR arrays, shared rather than copied; callers must not modify them
+    int[] offsets() {
+        return offsets;
+    }
+
+    int[] targets() {
+        return targets;
+    }
+
+    int[] weights() {
+        return weights;
+    }
+
+    public ShortestPathTree shortestPathTree(int source) {
+        long start = Metrics.start();
+        int n = names.length;
+        int[] distances = new int[n];
+        int[] previous = new int[n];
+        Arrays.fill(distances, UNREACHABLE);
+        Arrays.fill(previous, NO_PREVIOUS);
+
+        IndexedMinHeap queue = new IndexedMinHeap(n);
+        distances[source] = 0;
+        queue.insertOrDecrease(source, 0);
+        int settled = 0;
+
+        while (!queue.isEmpty()) {
+            int current = queue.pollMin();
+            int currentDistance = distances[current];
+            settled++;
+
+            for (int e = offsets[current], end = offsets[current + 1]; e < end; e++) {
+                int next = targets[e];
+                int newDist = currentDistance + weights[e];
+                if (newDist < distances[next]) {
+                    distances[next] = newDist;
+                    previous[next] = current;
+                    queue.insertOrDecrease(next, newDist);
+                }
+            }
+        }
+
+        Metrics.count(Metrics.Counter.DIJKSTRA_RUNS, 1);
+        Metrics.count(Metrics.Counter.SETTLED_NODES, settled);
+        Metrics.count(Metrics.Counter.HEAP_PUSHES, queue.pushCount());
+        Metrics.stop(Metrics.Phase.SHORTEST_PATH, start);
+        return new ShortestPathTree(this, source, distances, previous);
+    }
+
+    // Dynamic update after an undirected edge (a, b) of the given weight was added or shortened.
+    // Only nodes whose distance the edge improves are touched: they are seeded from the edge's
+    // endpoints and improvements are propagated Dijkstra-style. Returns the same tree when
+    // nothing improves; trees are never modified in place since readers may share them.
+    public ShortestPathTree relaxEdge(ShortestPathTree tree, int a, int b, int weight) {
+        int[] oldDistances = tree.distances();
+        if (!improves(oldDistances, a, b, weight) && !improves(oldDistances, b, a, weight)) {
+            return tree;
+        }
+
+        int[] distances = Arrays.copyOf(oldDistances, names.length);
+        int[] previous = Arrays.copyOf(tree.previous(), names.length);
+        IndexedMinHeap queue = new IndexedMinHeap(names.length);
+        relax(distances, previous, queue, a, b, weight);
+        relax(distances, previous, queue, b, a, weight);
+
+        while (!queue.isEmpty()) {
+            int current = queue.pollMin();
+            for (int e = offsets[current], end = offsets[current + 1]; e < end; e++) {
+                relax(distances, previous, queue, current, targets[e], weights[e]);
+            }
+        }
+
+        Metrics.count(Metrics.Counter.PATH_REPAIRS, 1);
+        Metrics.count(Metrics.Counter.HEAP_PUSHES, queue.pushCount());
+        return new ShortestPathTree(this, tree.source, distances, previous);
+    }
+
+    private static boolean improves(int[] distances, int from, int to, int weight) {
+        return distances[from] != UNREACHABLE && distances[from] + weight < distances[to];
+    }
+
+    private static void relax(int[] distances, int[] previous, IndexedMinHeap queue,
+                              int from, int to, int weight) {
+        if (improves(distances, from, to, weight)) {
+            distances[to] = distances[from] + weight;
+            previous[to] = from;
+            queue.insertOrDecrease(to, distances[to]);
+        }
+    }
+}
@@ -0,0 +1,493 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+// Contraction hierarchy over the undirected route graph of one CompactGraph.
+// Nodes are contracted cheapest first (shortcuts added minus edges removed, plus neighbours
+// already contracted); contracting v adds a shortcut u-w only when a bounded witness search finds
+// no path of at most the same length that avoids v. Only edges leading to higher-ranked nodes
+// are kept, so a query is two small upward Dijkstra searches that meet at the highest node of the
+// shortest path; shortcuts remember the node they bypass and are unpacked recursively for paths.
+class ContractionHierarchy {
+    private static final int MAGIC = 0x46534348; // "FSCH"
+    private static final int VERSION = 1;
+    // Witness searches give up after this many nodes; a missed witness only costs an extra shortcut
+    private static final int WITNESS_SETTLE_LIMIT = 50;
+    static final int NO_MIDDLE = -1;
+
+    private final CompactGraph graph;
+    private final long fingerprint;
+    private final int[] rank;
+    // Upward edges in CSR form: edges of v are [offsets[v], offsets[v + 1]) and all lead to higher ranks
+    private final int[] offsets;
+    private final int[] targets;
+    private final int[] weights;
+    private final int[] middles; // bypassed node of a shortcut, NO_MIDDLE for an original route
+
+    private ContractionHierarchy(CompactGraph graph, long fingerprint, int[] rank,
+                                 int[] offsets, int[] targets, int[] weights, int[] middles) {
+        this.graph = graph;
+        this.fingerprint = fingerprint;
+        this.rank = rank;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.weights = weights;
+        this.middles = middles;
+    }
+
+    public static ContractionHierarchy build(CompactGraph graph) {
+        long start = Metrics.start();
+        ContractionHierarchy hierarchy = new Builder(graph).run();
+        Metrics.stop(Metrics.Phase.HIERARCHY_BUILD, start);
+        return hierarchy;
+    }
+
+    // The graph this hierarchy answers for; it says nothing about any other version of the routes
+    CompactGraph graph() {
+        return graph;
+    }
+
+    public Route route(int source, int target) {
+        long start = Metrics.start();
+        int n = graph.size();
+        int[] forward = new int[n];
+        int[] backward = new int[n];
+        int[] forwardEdge = new int[n];  // upward edge that reached the node, -1 at the search root
+        int[] backwardEdge = new int[n];
+        int[] forwardParent = new int[n];
+        int[] backwardParent = new int[n];
+        Arrays.fill(forward, CompactGraph.UNREACHABLE);
+        Arrays.fill(backward, CompactGraph.UNREACHABLE);
+        Arrays.fill(forwardEdge, -1);
+        Arrays.fill(backwardEdge, -1);
+
+        IndexedMinHeap forwardQueue = new IndexedMinHeap(n);
+        IndexedMinHeap backwardQueue = new IndexedMinHeap(n);
+        forward[source] = 0;
+        backward[target] = 0;
+        forwardQueue.insertOrDecrease(source, 0);
+        backwardQueue.insertOrDecrease(target, 0);
+
+        int best = CompactGraph.UNREACHABLE;
+        int meeting = -1;
+        int settled = 0;
+        while (true) {
+            boolean forwardDone = forwardQueue.isEmpty() || forwardQueue.minKey() >= best;
+            boolean backwardDone = backwardQueue.isEmpty() || backwardQueue.minKey() >= best;
+            if (forwardDone && backwardDone) break;
+
+            boolean useForward = !forwardDone
+                    && (backwardDone || forwardQueue.minKey() <= backwardQueue.minKey());
+            int node = useForward
+                    ? settle(forwardQueue, forward, forwardEdge, forwardParent)
+                    : settle(backwardQueue, backward, backwardEdge, backwardParent);
+            settled++;
+            if (forward[node] != CompactGraph.UNREACHABLE && backward[node] != CompactGraph.UNREACHABLE
+                    && forward[node] + backward[node] < best) {
+                best = forward[node] + backward[node];
+                meeting = node;
+            }
+        }
+
+        List<String> path = new ArrayList<>();
+        if (meeting >= 0) {
+            List<Integer> nodes = new ArrayList<>();
+            // Source up to the meeting node, unpacked edge by edge from the meeting node down
+            for (int v = meeting; forwardEdge[v] >= 0; v = forwardParent[v]) {
+                List<Integer> segment = new ArrayList<>();
+                unpack(forwardParent[v], v, middles[forwardEdge[v]], segment);
+                Collections.reverse(segment);
+                nodes.addAll(segment);
+            }
+            nodes.add(source);
+            Collections.reverse(nodes);
+            // Meeting node down to the target
+            for (int v = meeting; backwardEdge[v] >= 0; v = backwardParent[v]) {
+                unpack(v, backwardParent[v], middles[backwardEdge[v]], nodes);
+            }
+            for (int v : nodes) {
+                path.add(graph.nameOf(v));
+            }
+        }
+
+        Metrics.count(Metrics.Counter.SETTLED_NODES, settled);
+        Metrics.stop(Metrics.Phase.ROUTE, start);
+        return new Route(path, best, settled, "Contraction hierarchy");
+    }
+
+    private int settle(IndexedMinHeap queue, int[] distances, int[] reachedBy, int[] parents) {
+        int node = queue.pollMin();
+        int distance = distances[node];
+        for (int e = offsets[node], end = offsets[node + 1]; e < end; e++) {
+            int next = targets[e];
+            int newDist = distance + weights[e];
+            if (newDist < distances[next]) {
+                distances[next] = newDist;
+                reachedBy[next] = e;
+                parents[next] = node;
+                queue.insertOrDecrease(next, newDist);
+            }
+        }
+        return node;
+    }
+
+    // Appends the nodes after 'from' on the original routes that the edge from-to stands for
+    private void unpack(int from, int to, int middle, List<Integer> out) {
+        int[] stack = new int[16 * 3];
+        int top = 0;
+        stack[top++] = from;
+        stack[top++] = to;
+        stack[top++] = middle;
+        while (top > 0) {
+            int m = stack[--top];
+            int b = stack[--top];
+            int a = stack[--top];
+            if (m == NO_MIDDLE) {
+                out.add(b);
+                continue;
+            }
+            if (top + 6 > stack.length) stack = Arrays.copyOf(stack, stack.length * 2);
+            // The bypassed node ranks below both ends, so both halves are upward edges out of it;
+            // push the second half first so the first is emitted first
+            stack[top++] = m;
+            stack[top++] = b;
+            stack[top++] = middleOf(m, b);
+            stack[top++] = a;
+            stack[top++] = m;
+            stack[top++] = middleOf(m, a);
+        }
+    }
+
+    private int middleOf(int lower, int higher) {
+        for (int e = offsets[lower]; e < offsets[lower + 1]; e++) {
+            if (targets[e] == higher) return middles[e];
+        }
+        throw new IllegalStateException("Missing hierarchy edge " + lower + "-" + higher);
+    }
+
+    // Writes the hierarchy with a fingerprint of the graph it was built for and a CRC32 trailer
+    public void save(Path file) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        CRC32 crc = new CRC32();
+        try (OutputStream stream = Files.newOutputStream(temp);
+             DataOutputStream out = new DataOutputStream(
+                     new CheckedOutputStream(new BufferedOutputStream(stream, 1 << 16), crc))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(fingerprint);
+            out.writeInt(rank.length);
+            out.writeInt(targets.length);
+            writeInts(out, rank);
+            writeInts(out, offsets);
+            writeInts(out, targets);
+            writeInts(out, weights);
+            writeInts(out, middles);
+            out.flush();
+            DataOutputStream trailer = new DataOutputStream(stream);
+            trailer.writeLong(crc.getValue());
+            trailer.flush();
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // Reads a saved hierarchy; fails if it is corrupt or was built for a different graph
+    public static ContractionHierarchy load(Path file, CompactGraph graph) throws IOException {
+        CRC32 crc = new CRC32();
+        try (InputStream stream = new BufferedInputStream(Files.newInputStream(file), 1 << 16);
+             DataInputStream in = new DataInputStream(new CheckedInputStream(stream, crc))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a hierarchy file: " + file);
+            }
+            int version = in.readInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported hierarchy version " + version + ": " + file);
+            }
+            long fingerprint = in.readLong();
+            if (fingerprint != fingerprint(graph)) {
+                throw new IOException("Hierarchy was built for different routes: " + file);
+            }
+            int n = in.readInt();
+            int edgeCount = in.readInt();
+            if (n != graph.size() || edgeCount < 0) {
+                throw new IOException("Hierarchy size does not match the graph: " + file);
+            }
+            int[] rank = readInts(in, n);
+            int[] offsets = readInts(in, n + 1);
+            int[] targets = readInts(in, edgeCount);
+            int[] weights = readInts(in, edgeCount);
+            int[] middles = readInts(in, edgeCount);
+            long expected = crc.getValue();
+            if (new DataInputStream(stream).readLong() != expected) {
+                throw new IOException("Checksum mismatch in hierarchy: " + file);
+            }
+            return new ContractionHierarchy(graph, fingerprint, rank, offsets, targets, weights, middles);
+        }
+    }
+
+    // CRC32 over the state names and CSR arrays; any change to states or routes changes it
+    static long fingerprint(CompactGraph graph) {
+        CRC32 crc = new CRC32();
+        for (int v = 0; v < graph.size(); v++) {
+            crc.update(graph.nameOf(v).getBytes(StandardCharsets.UTF_8));
+            crc.update(0);
+        }
+        updateInts(crc, graph.offsets());
+        updateInts(crc, graph.targets());
+        updateInts(crc, graph.weights());
+        return crc.getValue();
+    }
+
+    private static void updateInts(CRC32 crc, int[] values) {
+        ByteBuffer buffer = ByteBuffer.allocate(values.length * 4);
+        buffer.asIntBuffer().put(values);
+        crc.update(buffer.array());
+    }
+
+    private static void writeInts(DataOutputStream out, int[] values) throws IOException {
+        for (int value : values) {
+            out.writeInt(value);
+        }
+    }
+
+    private static int[] readInts(DataInputStream in, int count) throws IOException {
+        byte[] bytes = new byte[count * 4];
+        in.readFully(bytes);
+        int[] values = new int[count];
+        ByteBuffer.wrap(bytes).asIntBuffer().get(values);
+        return values;
+    }
+
+    // Node ordering and contraction over a mutable adjacency-list copy of the graph
+    private static class Builder {
+        private final CompactGraph graph;
+        private final int n;
+        private final int[][] adjacentNodes;
+        private final int[][] adjacentWeights;
+        private final int[][] adjacentMiddles;
+        private final int[] degree;
+        private final int[] contractedNeighbours;
+
+        // Witness search state, reset after each search through the touched list
+        private final int[] witnessDistances;
+        private final int[] touched;
+        private int touchedCount;
+        private final IndexedMinHeap witnessQueue;
+
+        // Shortcuts the last simulated contraction would add: pairs and lengths
+        private int[] shortcutFrom = new int[16];
+        private int[] shortcutTo = new int[16];
+        private int[] shortcutWeight = new int[16];
+        private int shortcutCount;
+
+        Builder(CompactGraph graph) {
+            this.graph = graph;
+            this.n = graph.size();
+            adjacentNodes = new int[n][];
+            adjacentWeights = new int[n][];
+            adjacentMiddles = new int[n][];
+            degree = new int[n];
+            contractedNeighbours = new int[n];
+            witnessDistances = new int[n];
+            touched = new int[n];
+            witnessQueue = new IndexedMinHeap(n);
+            Arrays.fill(witnessDistances, CompactGraph.UNREACHABLE);
+
+            int[] offsets = graph.offsets();
+            int[] targets = graph.targets();
+            int[] weights = graph.weights();
+            for (int v = 0; v < n; v++) {
+                int size = Math.max(2, offsets[v + 1] - offsets[v]);
+                adjacentNodes[v] = new int[size];
+                adjacentWeights[v] = new int[size];
+                adjacentMiddles[v] = new int[size];
+            }
+            for (int v = 0; v < n; v++) {
+                for (int e = offsets[v]; e < offsets[v + 1]; e++) {
+                    if (targets[e] != v) {
+                        addOrShorten(v, targets[e], weights[e], NO_MIDDLE);
+                    }
+                }
+            }
+        }
+
+        ContractionHierarchy run() {
+            int[] rank = new int[n];
+            IndexedMinHeap queue = new IndexedMinHeap(n);
+            for (int v = 0; v < n; v++) {
+                queue.insertOrDecrease(v, priority(v));
+            }
+
+            int order = 0;
+            while (!queue.isEmpty()) {
+                int v = queue.pollMin();
+                // Priorities only ever get lowered in the queue; re-check before contracting
+                int current = priority(v);
+                if (!queue.isEmpty() && current > queue.minKey()) {
+                    queue.insertOrDecrease(v, current);
+                    continue;
+                }
+
+                for (int i = 0; i < shortcutCount; i++) {
+                    addOrShorten(shortcutFrom[i], shortcutTo[i], shortcutWeight[i], v);
+                    addOrShorten(shortcutTo[i], shortcutFrom[i], shortcutWeight[i], v);
+                }
+                rank[v] = order++;
+                // v keeps its edges (all to higher ranks now); the neighbours forget v, so
+                // searches over the remaining graph never step over contracted nodes
+                for (int i = 0; i < degree[v]; i++) {
+                    int neighbour = adjacentNodes[v][i];
+                    contractedNeighbours[neighbour]++;
+                    remove(neighbour, v);
+                }
+            }
+
+            return upwardGraph(rank);
+        }
+
+        private ContractionHierarchy upwardGraph(int[] rank) {
+            int[] offsets = new int[n + 1];
+            for (int v = 0; v < n; v++) {
+                int up = 0;
+                for (int i = 0; i < degree[v]; i++) {
+                    if (rank[adjacentNodes[v][i]] > rank[v]) up++;
+                }
+                offsets[v + 1] = offsets[v] + up;
+            }
+            int[] targets = new int[offsets[n]];
+            int[] weights = new int[offsets[n]];
+            int[] middles = new int[offsets[n]];
+            for (int v = 0; v < n; v++) {
+                int slot = offsets[v];
+                for (int i = 0; i < degree[v]; i++) {
+                    if (rank[adjacentNodes[v][i]] > rank[v]) {
+                        targets[slot] = adjacentNodes[v][i];
+                        weights[slot] = adjacentWeights[v][i];
+                        middles[slot] = adjacentMiddles[v][i];
+                        slot++;
+                    }
+                }
+            }
+            return new ContractionHierarchy(graph, fingerprint(graph), rank, offsets, targets, weights, middles);
+        }
+
+        // Edge difference plus contracted neighbours; leaves v's shortcuts in the shortcut buffers
+        private int priority(int v) {
+            shortcutCount = 0;
+            for (int i = 0; i + 1 < degree[v]; i++) {
+                int u = adjacentNodes[v][i];
+                int maxVia = 0;
+                for (int j = i + 1; j < degree[v]; j++) {
+                    maxVia = Math.max(maxVia, adjacentWeights[v][i] + adjacentWeights[v][j]);
+                }
+
+                witnessSearch(u, v, maxVia);
+                for (int j = i + 1; j < degree[v]; j++) {
+                    int w = adjacentNodes[v][j];
+                    int via = adjacentWeights[v][i] + adjacentWeights[v][j];
+                    if (witnessDistances[w] > via) {
+                        recordShortcut(u, w, via);
+                    }
+                }
+                clearWitness();
+            }
+            return shortcutCount - degree[v] + contractedNeighbours[v];
+        }
+
+        // Dijkstra from source over the remaining graph, avoiding excluded, up to maxDistance
+        private void witnessSearch(int source, int excluded, int maxDistance) {
+            witnessDistances[source] = 0;
+            touched[touchedCount++] = source;
+            witnessQueue.insertOrDecrease(source, 0);
+            int settled = 0;
+            while (!witnessQueue.isEmpty()) {
+                int x = witnessQueue.pollMin();
+                if (++settled > WITNESS_SETTLE_LIMIT) break;
+                for (int i = 0; i < degree[x]; i++) {
+                    int y = adjacentNodes[x][i];
+                    if (y == excluded) continue;
+                    int distance = witnessDistances[x] + adjacentWeights[x][i];
+                    // Nothing longer than maxDistance can be a witness, so it is never queued
+                    if (distance <= maxDistance && distance < witnessDistances[y]) {
+                        if (witnessDistances[y] == CompactGraph.UNREACHABLE) touched[touchedCount++] = y;
+                        witnessDistances[y] = distance;
+                        witnessQueue.insertOrDecrease(y, distance);
+                    }
+                }
+            }
+            // Whatever is still queued has a real path of its tentative length, so it stays valid
+            witnessQueue.clear();
+        }
+
+        private void clearWitness() {
+            for (int i = 0; i < touchedCount; i++) {
+                witnessDistances[touched[i]] = CompactGraph.UNREACHABLE;
+            }
+            touchedCount = 0;
+        }
+
+        private void recordShortcut(int from, int to, int weight) {
+            if (shortcutCount == shortcutFrom.length) {
+                shortcutFrom = Arrays.copyOf(shortcutFrom, shortcutCount * 2);
+                shortcutTo = Arrays.copyOf(shortcutTo, shortcutCount * 2);
+                shortcutWeight = Arrays.copyOf(shortcutWeight, shortcutCount * 2);
+            }
+            shortcutFrom[shortcutCount] = from;
+            shortcutTo[shortcutCount] = to;
+            shortcutWeight[shortcutCount] = weight;
+            shortcutCount++;
+        }
+
+        private void remove(int from, int to) {
+            int last = degree[from] - 1;
+            for (int i = 0; i <= last; i++) {
+                if (adjacentNodes[from][i] == to) {
+                    adjacentNodes[from][i] = adjacentNodes[from][last];
+                    adjacentWeights[from][i] = adjacentWeights[from][last];
+                    adjacentMiddles[from][i] = adjacentMiddles[from][last];
+                    degree[from] = last;
+                    return;
+                }
+            }
+        }
+
+        // Keeps one edge per neighbour pair: the shortest, together with what it bypasses
+        private void addOrShorten(int from, int to, int weight, int middle) {
+            int[] nodes = adjacentNodes[from];
+            for (int i = 0; i < degree[from]; i++) {
+                if (nodes[i] == to) {
+                    if (weight < adjacentWeights[from][i]) {
+                        adjacentWeights[from][i] = weight;
+                        adjacentMiddles[from][i] = middle;
+                    }
+                    return;
+                }
+            }
+            int d = degree[from];
+            if (d == nodes.length) {
+                adjacentNodes[from] = Arrays.copyOf(nodes, d * 2);
+                adjacentWeights[from] = Arrays.copyOf(adjacentWeights[from], d * 2);
+                adjacentMiddles[from] = Arrays.copyOf(adjacentMiddles[from], d * 2);
+            }
+            adjacentNodes[from][d] = to;
+            adjacentWeights[from][d] = weight;
+            adjacentMiddles[from][d] = middle;
+            degree[from]++;
+        }
+    }
+}
@@ -0,0 +1,449 @@
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Loads the sectioned data file through a memory map with a byte-level CSV tokenizer.
+// Numbers are parsed straight from the mapped bytes, repeated state and food names resolve to one
+// shared String, and malformed rows are collected with their line numbers instead of throwing.
+class DataFileLoader {
+    private static final int WINDOW_SIZE = 1 << 28; // bytes mapped at a time
+    private static final int MAX_FIELDS = 8;
+    private static final int MAX_REPORTED_ERRORS = 100;
+
+    private static final int NO_SECTION = 0;
+    private static final int STATES = 1;
+    private static final int ROUTES = 2;
+    private static final int FOOD = 3;
+    private static final int DEMANDS = 4;
+
+    private static final byte[][] MARKERS = {
+            null,
+            "// states.csv".getBytes(StandardCharsets.US_ASCII),
+            "// routes.csv".getBytes(StandardCharsets.US_ASCII),
+            "// food_items.csv".getBytes(StandardCharsets.US_ASCII),
+            "// state_demands.csv".getBytes(StandardCharsets.US_ASCII),
+    };
+
+    // Exact powers of ten for the fast double path
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    static class Report {
+        int states;
+        int routes;
+        int foodItems;
+        int demands;
+        int malformedRows;
+        final List<String> errors = new ArrayList<>(); // first MAX_REPORTED_ERRORS problems
+
+        public boolean hasErrors() {
+            return malformedRows > 0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d states, %d routes, %d food items, %d demands, %d malformed rows",
+                    states, routes, foodItems, demands, malformedRows);
+        }
+    }
+
+    private final StateGraph graph;
+    private final ProfitOptimizer optimizer;
+    private final NameTable names = new NameTable();
+    // Open for the duration of load(); the whole file is published as one version of each
+    private StateGraph.Edit graphEdit;
+    private ProfitOptimizer.Edit catalogEdit;
+
+    // Tokenizer state for the current line
+    private MappedByteBuffer buffer;
+    private final int[] fieldStart = new int[MAX_FIELDS];
+    private final int[] fieldEnd = new int[MAX_FIELDS];
+    private int fieldCount;
+    private boolean numberValid;
+
+    private Report report;
+    private int section;
+    private boolean expectHeader;
+    private long lineNumber;
+
+    DataFileLoader(StateGraph graph, ProfitOptimizer optimizer) {
+        this.graph = graph;
+        this.optimizer = optimizer;
+    }
+
+    public Report load(Path file) throws IOException {
+        long start = Metrics.start();
+        report = new Report();
+        section = NO_SECTION;
+        expectHeader = true;
+        lineNumber = 0;
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+             StateGraph.Edit graphEdit = graph.edit();
+             ProfitOptimizer.Edit catalogEdit = optimizer.edit()) {
+            this.graphEdit = graphEdit;
+            this.catalogEdit = catalogEdit;
+            long size = channel.size();
+            long position = 0;
+            while (position < size) {
+                int length = (int) Math.min(WINDOW_SIZE, size - position);
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+                boolean lastWindow = position + length == size;
+
+                int consumed = scanLines(length, lastWindow);
+                if (consumed == 0) {
+                    throw new IOException("Line " + (lineNumber + 1) + " is longer than " + WINDOW_SIZE + " bytes");
+                }
+                position += consumed;
+            }
+            graphEdit.commit();
+            catalogEdit.commit();
+        } finally {
+            buffer = null;
+            graphEdit = null;
+            catalogEdit = null;
+        }
+        Metrics.stop(Metrics.Phase.LOAD, start);
+        return report;
+    }
+
+    // Processes every complete line in the window; returns the bytes consumed
+    private int scanLines(int limit, boolean lastWindow) {
+        int lineStart = 0;
+        for (int i = 0; i < limit; i++) {
+            if (buffer.get(i) == '\n') {
+                processLine(lineStart, i);
+                lineStart = i + 1;
+            }
+        }
+        if (lastWindow && lineStart < limit) {
+            processLine(lineStart, limit);
+            lineStart = limit;
+        }
+        return lineStart;
+    }
+
+    private void processLine(int start, int end) {
+        lineNumber++;
+        if (end > start && buffer.get(end - 1) == '\r') end--;
+        start = skipSpaces(start, end);
+        end = trimSpaces(start, end);
+        if (start == end) return;
+
+        if (end - start >= 2 && buffer.get(start) == '/' && buffer.get(start + 1) == '/') {
+            section = matchSection(start, end);
+            expectHeader = true;
+            return;
+        }
+        if (expectHeader) {
+            expectHeader = false;
+            return; // Skip header lines
+        }
+
+        tokenize(start, end);
+        switch (section) {
+            case STATES:
+                processState();
+                break;
+            case ROUTES:
+                processRoute();
+                break;
+            case FOOD:
+                processFoodItem();
+                break;
+            case DEMANDS:
+                processDemand();
+                break;
+        }
+    }
+
+    private void processState() {
+        if (!expectFields(3)) return;
+        numberValid = true;
+        double latitude = parseDouble(1);
+        double longitude = parseDouble(2);
+        if (!numberValid) {
+            malformed("invalid coordinates");
+            return;
+        }
+        graphEdit.addState(name(0), latitude, longitude);
+        report.states++;
+    }
+
+    private void processRoute() {
+        if (!expectFields(3)) return;
+        numberValid = true;
+        int distance = parseInt(2);
+        if (!numberValid || distance < 0) {
+            malformed("invalid distance");
+            return;
+        }
+        String from = name(0);
+        String to = name(1);
+        if (!graphEdit.hasState(from) || !graphEdit.hasState(to)) {
+            malformed("route between unknown states " + from + " and " + to);
+            return;
+        }
+        graphEdit.addRoute(from, to, distance);
+        report.routes++;
+    }
+
+    private void processFoodItem() {
+        if (!expectFields(6)) return;
+        numberValid = true;
+        double price = parseDouble(1);
+        int growingTime = parseInt(2);
+        double productionCost = parseDouble(3);
+        double weight = parseDouble(4);
+        double transportCost = parseDouble(5);
+        if (!numberValid) {
+            malformed("invalid number in food item");
+            return;
+        }
+        String name = name(0);
+        if (weight <= 0) {
+            malformed("invalid weight for food item " + name);
+            return;
+        }
+        catalogEdit.addFoodItem(new FoodItem(name, price, growingTime, productionCost, weight, transportCost));
+        report.foodItems++;
+    }
+
+    private void processDemand() {
+        if (!expectFields(3)) return;
+        numberValid = true;
+        int demand = parseInt(2);
+        if (!numberValid) {
+            malformed("invalid demand");
+            return;
+        }
+        catalogEdit.addStateDemand(name(0), name(1), demand);
+        report.demands++;
+    }
+
+    private boolean expectFields(int count) {
+        if (fieldCount < count) {
+            malformed("expected " + count + " fields, found " + fieldCount);
+            return false;
+        }
+        return true;
+    }
+
+    private void malformed(String reason) {
+        report.malformedRows++;
+        if (report.errors.size() < MAX_REPORTED_ERRORS) {
+            report.errors.add("line " + lineNumber + ": " + reason);
+        }
+    }
+
+    private int matchSection(int start, int end) {
+        for (int s = STATES; s <= DEMANDS; s++) {
+            byte[] marker = MARKERS[s];
+            if (end - start != marker.length) continue;
+            int i = 0;
+            while (i < marker.length && buffer.get(start + i) == marker[i]) i++;
+            if (i == marker.length) return s;
+        }
+        return NO_SECTION;
+    }
+
+    private void tokenize(int start, int end) {
+        fieldCount = 0;
+        int fieldBegin = start;
+        for (int i = start; i <= end && fieldCount < MAX_FIELDS; i++) {
+            if (i == end || buffer.get(i) == ',') {
+                int s = skipSpaces(fieldBegin, i);
+                fieldStart[fieldCount] = s;
+                fieldEnd[fieldCount] = trimSpaces(s, i);
+                fieldCount++;
+                fieldBegin = i + 1;
+            }
+        }
+    }
+
+    private int skipSpaces(int start, int end) {
+        while (start < end && isSpace(buffer.get(start))) start++;
+        return start;
+    }
+
+    private int trimSpaces(int start, int end) {
+        while (end > start && isSpace(buffer.get(end - 1))) end--;
+        return end;
+    }
+
+    private static boolean isSpace(byte b) {
+        return b == ' ' || b == '\t';
+    }
+
+    private String name(int field) {
+        return names.resolve(buffer, fieldStart[field], fieldEnd[field]);
+    }
+
+    private int parseInt(int field) {
+        int i = fieldStart[field];
+        int end = fieldEnd[field];
+        boolean negative = false;
+        if (i < end && (buffer.get(i) == '-' || buffer.get(i) == '+')) {
+            negative = buffer.get(i) == '-';
+            i++;
+        }
+        if (i == end) {
+            numberValid = false;
+            return 0;
+        }
+        long value = 0;
+        for (; i < end; i++) {
+            int digit = buffer.get(i) - '0';
+            if (digit < 0 || digit > 9 || value > Integer.MAX_VALUE) {
+                numberValid = false;
+                return 0;
+            }
+            value = value * 10 + digit;
+        }
+        value = negative ? -value : value;
+        if (value > Integer.MAX_VALUE || value < Integer.MIN_VALUE) {
+            numberValid = false;
+            return 0;
+        }
+        return (int) value;
+    }
+
+    // Decimal and scientific notation; results are identical to Double.parseDouble
+    private double parseDouble(int field) {
+        int start = fieldStart[field];
+        int end = fieldEnd[field];
+        int i = start;
+        boolean negative = false;
+        if (i < end && (buffer.get(i) == '-' || buffer.get(i) == '+')) {
+            negative = buffer.get(i) == '-';
+            i++;
+        }
+
+        long mantissa = 0;
+        int significantDigits = 0;
+        int exponent = 0;
+        int digits = 0;
+        boolean seenPoint = false;
+        for (; i < end; i++) {
+            byte b = buffer.get(i);
+            if (b >= '0' && b <= '9') {
+                digits++;
+                if (significantDigits < 18) {
+                    if (mantissa != 0 || b != '0') significantDigits++;
+                    mantissa = mantissa * 10 + (b - '0');
+                    if (seenPoint) exponent--;
+                } else if (!seenPoint) {
+                    exponent++;
+                }
+            } else if (b == '.' && !seenPoint) {
+                seenPoint = true;
+            } else {
+                break;
+            }
+        }
+        if (digits == 0) {
+            numberValid = false;
+            return 0;
+        }
+
+        if (i < end && (buffer.get(i) == 'e' || buffer.get(i) == 'E')) {
+            i++;
+            boolean negativeExponent = false;
+            if (i < end && (buffer.get(i) == '-' || buffer.get(i) == '+')) {
+                negativeExponent = buffer.get(i) == '-';
+                i++;
+            }
+            int explicit = 0;
+            int exponentDigits = 0;
+            for (; i < end && buffer.get(i) >= '0' && buffer.get(i) <= '9'; i++) {
+                explicit = Math.min(explicit * 10 + (buffer.get(i) - '0'), 100_000);
+                exponentDigits++;
+            }
+            if (exponentDigits == 0) {
+                numberValid = false;
+                return 0;
+            }
+            exponent += negativeExponent ? -explicit : explicit;
+        }
+        if (i != end) {
+            numberValid = false;
+            return 0;
+        }
+
+        double value;
+        if (significantDigits < 18 && mantissa < (1L << 53) && exponent >= -22 && exponent <= 22) {
+            // Both operands are exact doubles, so one multiply or divide rounds correctly
+            value = exponent < 0 ? mantissa / POWERS_OF_TEN[-exponent] : mantissa * POWERS_OF_TEN[exponent];
+        } else {
+            // Rare: too many digits or an extreme exponent, fall back to the JDK for exact rounding
+            byte[] text = new byte[end - start];
+            for (int k = 0; k < text.length; k++) {
+                text[k] = buffer.get(start + k);
+            }
+            return Double.parseDouble(new String(text, StandardCharsets.US_ASCII));
+        }
+        return negative ? -value : value;
+    }
+
+    // Open-addressing table from name bytes to a single shared String instance
+    private static class NameTable {
+        private byte[][] keys = new byte[64][];
+        private String[] values = new String[64];
+        private int size;
+
+        String resolve(MappedByteBuffer buffer, int start, int end) {
+            int hash = 1;
+            for (int i = start; i < end; i++) {
+                hash = 31 * hash + buffer.get(i);
+            }
+            int mask = keys.length - 1;
+            int slot = (hash ^ (hash >>> 16)) & mask;
+            while (keys[slot] != null) {
+                if (matches(keys[slot], buffer, start, end)) return values[slot];
+                slot = (slot + 1) & mask;
+            }
+
+            byte[] key = new byte[end - start];
+            for (int i = 0; i < key.length; i++) {
+                key[i] = buffer.get(start + i);
+            }
+            String value = new String(key, StandardCharsets.UTF_8);
+            keys[slot] = key;
+            values[slot] = value;
+            if (++size * 2 > keys.length) grow();
+            return value;
+        }
+
+        private static boolean matches(byte[] key, MappedByteBuffer buffer, int start, int end) {
+            if (key.length != end - start) return false;
+            for (int i = 0; i < key.length; i++) {
+                if (key[i] != buffer.get(start + i)) return false;
+            }
+            return true;
+        }
+
+        private void grow() {
+            byte[][] oldKeys = keys;
+            String[] oldValues = values;
+            keys = new byte[oldKeys.length * 2][];
+            values = new String[oldKeys.length * 2];
+            int mask = keys.length - 1;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] == null) continue;
+                int hash = Arrays.hashCode(oldKeys[i]);
+                int slot = (hash ^ (hash >>> 16)) & mask;
+                while (keys[slot] != null) slot = (slot + 1) & mask;
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+}
@@ -0,0 +1,286 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+// Versioned binary image of a loaded StateGraph and ProfitOptimizer catalog.
+// Layout (big-endian): magic, version, source size and mtime, a string table, then states
+// (name ids, latitudes, longitudes), the CSR route arrays, food items as parallel columns,
+// demand triples, and a trailing CRC32 of everything before it. Reads memory-map the file.
+class DataSnapshot {
+    private static final int MAGIC = 0x46534F53; // "FSOS"
+    private static final int VERSION = 1;
+
+    enum Source { SNAPSHOT, TEXT }
+
+    public static void write(Path snapshot, Path source, StateGraph graph, ProfitOptimizer optimizer) throws IOException {
+        GraphSnapshot current = graph.snapshot();
+        CompactGraph routes = current.getCompactGraph();
+        List<String> strings = new ArrayList<>();
+        Map<String, Integer> stringIds = new HashMap<>();
+
+        int n = routes.size();
+        int[] stateNames = new int[n];
+        double[] latitudes = new double[n];
+        double[] longitudes = new double[n];
+        for (int v = 0; v < n; v++) {
+            State state = current.getState(routes.nameOf(v));
+            stateNames[v] = intern(routes.nameOf(v), strings, stringIds);
+            latitudes[v] = state.latitude;
+            longitudes[v] = state.longitude;
+        }
+
+        ProfitOptimizer.Catalog catalog = optimizer.catalog();
+        List<FoodItem> foods = new ArrayList<>(catalog.foodItems.values());
+        int[] foodNames = new int[foods.size()];
+        for (int i = 0; i < foods.size(); i++) {
+            foodNames[i] = intern(foods.get(i).name, strings, stringIds);
+        }
+
+        int demandCount = 0;
+        for (Map<String, Integer> demands : catalog.stateDemands.values()) {
+            demandCount += demands.size();
+        }
+        int[] demandStates = new int[demandCount];
+        int[] demandFoods = new int[demandCount];
+        int[] demandQuantities = new int[demandCount];
+        int d = 0;
+        for (Map.Entry<String, Map<String, Integer>> state : catalog.stateDemands.entrySet()) {
+            for (Map.Entry<String, Integer> demand : state.getValue().entrySet()) {
+                demandStates[d] = intern(state.getKey(), strings, stringIds);
+                demandFoods[d] = intern(demand.getKey(), strings, stringIds);
+                demandQuantities[d] = demand.getValue();
+                d++;
+            }
+        }
+
+        // Write to a temporary file and move it into place so readers never see half a snapshot
+        Path temp = snapshot.resolveSibling(snapshot.getFileName() + ".tmp");
+        CRC32 crc = new CRC32();
+        try (OutputStream file = Files.newOutputStream(temp);
+             DataOutputStream out = new DataOutputStream(
+                     new CheckedOutputStream(new BufferedOutputStream(file, 1 << 16), crc))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(Files.size(source));
+            out.writeLong(Files.getLastModifiedTime(source).toMillis());
+
+            out.writeInt(strings.size());
+            for (String s : strings) {
+                byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            }
+
+            out.writeInt(n);
+            writeInts(out, stateNames);
+            writeDoubles(out, latitudes);
+            writeDoubles(out, longitudes);
+            out.writeInt(routes.edgeCount());
+            writeInts(out, routes.offsets());
+            writeInts(out, routes.targets());
+            writeInts(out, routes.weights());
+
+            out.writeInt(foods.size());
+            writeInts(out, foodNames);
+            double[] column = new double[foods.size()];
+            int[] growingTimes = new int[foods.size()];
+            for (int i = 0; i < foods.size(); i++) column[i] = foods.get(i).pricePerUnit;
+            writeDoubles(out, column);
+            for (int i = 0; i < foods.size(); i++) growingTimes[i] = foods.get(i).growingTime;
+            writeInts(out, growingTimes);
+            for (int i = 0; i < foods.size(); i++) column[i] = foods.get(i).productionCost;
+            writeDoubles(out, column);
+            for (int i = 0; i < foods.size(); i++) column[i] = foods.get(i).weight;
+            writeDoubles(out, column);
+            for (int i = 0; i < foods.size(); i++) column[i] = foods.get(i).transportCostPerMile;
+            writeDoubles(out, column);
+
+            out.writeInt(demandCount);
+            writeInts(out, demandStates);
+            writeInts(out, demandFoods);
+            writeInts(out, demandQuantities);
+
+            out.flush();
+            // The checksum itself goes straight to the file, outside the checked stream
+            DataOutputStream trailer = new DataOutputStream(file);
+            trailer.writeLong(crc.getValue());
+            trailer.flush();
+        }
+        Files.move(temp, snapshot, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // Fills an empty graph and optimizer from a snapshot; fails on a bad magic, version or checksum
+    public static void read(Path snapshot, StateGraph graph, ProfitOptimizer optimizer) throws IOException {
+        long start = Metrics.start();
+        MappedByteBuffer buffer = map(snapshot);
+        verifyChecksum(buffer, snapshot);
+        readHeader(buffer, snapshot);
+        buffer.getLong(); // source size
+        buffer.getLong(); // source mtime
+
+        String[] strings = new String[buffer.getInt()];
+        for (int i = 0; i < strings.length; i++) {
+            byte[] bytes = new byte[buffer.getInt()];
+            buffer.get(bytes);
+            strings[i] = new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        int n = buffer.getInt();
+        int[] stateNames = readInts(buffer, n);
+        double[] latitudes = readDoubles(buffer, n);
+        double[] longitudes = readDoubles(buffer, n);
+        int edgeCount = buffer.getInt();
+        int[] offsets = readInts(buffer, n + 1);
+        int[] targets = readInts(buffer, edgeCount);
+        int[] weights = readInts(buffer, edgeCount);
+
+        String[] names = new String[n];
+        for (int v = 0; v < n; v++) {
+            names[v] = strings[stateNames[v]];
+        }
+        graph.restore(latitudes, longitudes, CompactGraph.of(names, offsets, targets, weights));
+
+        int foodCount = buffer.getInt();
+        int[] foodNames = readInts(buffer, foodCount);
+        double[] prices = readDoubles(buffer, foodCount);
+        int[] growingTimes = readInts(buffer, foodCount);
+        double[] productionCosts = readDoubles(buffer, foodCount);
+        double[] foodWeights = readDoubles(buffer, foodCount);
+        double[] transportCosts = readDoubles(buffer, foodCount);
+        int demandCount = buffer.getInt();
+        int[] demandStates = readInts(buffer, demandCount);
+        int[] demandFoods = readInts(buffer, demandCount);
+        int[] demandQuantities = readInts(buffer, demandCount);
+        try (ProfitOptimizer.Edit catalog = optimizer.edit()) {
+            for (int i = 0; i < foodCount; i++) {
+                catalog.addFoodItem(new FoodItem(strings[foodNames[i]], prices[i], growingTimes[i],
+                        productionCosts[i], foodWeights[i], transportCosts[i]));
+            }
+            for (int i = 0; i < demandCount; i++) {
+                catalog.addStateDemand(strings[demandStates[i]], strings[demandFoods[i]], demandQuantities[i]);
+            }
+            catalog.commit();
+        }
+        Metrics.stop(Metrics.Phase.LOAD, start);
+    }
+
+    // Loads the snapshot when it was built from the current source file; otherwise parses the text
+    // file and writes a fresh snapshot. Stale, corrupt or old-version snapshots are rebuilt.
+    public static Source loadOrRebuild(Path source, Path snapshot, StateGraph graph,
+                                       ProfitOptimizer optimizer) throws IOException {
+        if (isCurrent(source, snapshot)) {
+            try {
+                read(snapshot, graph, optimizer);
+                return Source.SNAPSHOT;
+            } catch (IOException | RuntimeException e) {
+                System.err.println("Ignoring snapshot " + snapshot + ": " + e.getMessage());
+            }
+        }
+
+        DataFileLoader.Report report = new DataFileLoader(graph, optimizer).load(source);
+        if (report.hasErrors()) {
+            System.err.println("Skipped malformed rows in " + source + ": " + report);
+            report.errors.forEach(error -> System.err.println("  " + error));
+        }
+        write(snapshot, source, graph, optimizer);
+        return Source.TEXT;
+    }
+
+    private static boolean isCurrent(Path source, Path snapshot) throws IOException {
+        if (!Files.exists(snapshot)) return false;
+        try (FileChannel channel = FileChannel.open(snapshot, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(24);
+            while (header.hasRemaining() && channel.read(header) > 0) { }
+            if (header.hasRemaining()) return false;
+            header.flip();
+            return header.getInt() == MAGIC
+                    && header.getInt() == VERSION
+                    && header.getLong() == Files.size(source)
+                    && header.getLong() == Files.getLastModifiedTime(source).toMillis();
+        }
+    }
+
+    private static MappedByteBuffer map(Path snapshot) throws IOException {
+        try (FileChannel channel = FileChannel.open(snapshot, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Snapshot too large to map: " + snapshot);
+            }
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+
+    private static void verifyChecksum(MappedByteBuffer buffer, Path snapshot) throws IOException {
+        int bodyLength = buffer.limit() - 8;
+        if (bodyLength < 8) {
+            throw new IOException("Truncated snapshot: " + snapshot);
+        }
+        ByteBuffer body = buffer.duplicate();
+        body.limit(bodyLength);
+        CRC32 crc = new CRC32();
+        crc.update(body);
+        if (crc.getValue() != buffer.getLong(bodyLength)) {
+            throw new IOException("Checksum mismatch in snapshot: " + snapshot);
+        }
+    }
+
+    private static void readHeader(ByteBuffer buffer, Path snapshot) throws IOException {
+        if (buffer.getInt() != MAGIC) {
+            throw new IOException("Not a snapshot file: " + snapshot);
+        }
+        int version = buffer.getInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported snapshot version " + version + ": " + snapshot);
+        }
+    }
+
+    private static int intern(String s, List<String> strings, Map<String, Integer> ids) {
+        Integer id = ids.get(s);
+        if (id == null) {
+            id = strings.size();
+            strings.add(s);
+            ids.put(s, id);
+        }
+        return id;
+    }
+
+    private static void writeInts(DataOutputStream out, int[] values) throws IOException {
+        for (int value : values) {
+            out.writeInt(value);
+        }
+    }
+
+    private static void writeDoubles(DataOutputStream out, double[] values) throws IOException {
+        for (double value : values) {
+            out.writeDouble(value);
+        }
+    }
+
+    private static int[] readInts(ByteBuffer buffer, int count) {
+        int[] values = new int[count];
+        buffer.asIntBuffer().get(values);
+        buffer.position(buffer.position() + count * 4);
+        return values;
+    }
+
+    private static double[] readDoubles(ByteBuffer buffer, int count) {
+        double[] values = new double[count];
+        buffer.asDoubleBuffer().get(values);
+        buffer.position(buffer.position() + count * 8);
+        return values;
+    }
+}
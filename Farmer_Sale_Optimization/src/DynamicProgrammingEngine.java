@@ -0,0 +1,18 @@
+// Exact DP over every capacity cell; cost is items x capacity
+class DynamicProgrammingEngine implements KnapsackEngine {
+    private final boolean parallel;
+
+    DynamicProgrammingEngine(boolean parallel) {
+        this.parallel = parallel;
+    }
+
+    @Override
+    public String name() {
+        return parallel ? "dp-parallel" : "dp";
+    }
+
+    @Override
+    public KnapsackSolution solve(int[] weights, double[] profits, int capacity) {
+        return KnapsackSolution.exact(name(), KnapsackSolver.solve(weights, profits, capacity, parallel), profits);
+    }
+}
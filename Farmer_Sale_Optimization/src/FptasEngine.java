@@ -0,0 +1,114 @@
+import java.util.Arrays;
+
+// Profit-scaling FPTAS: rounds profits down to multiples of K = epsilon * maxProfit / n and runs a
+// min-weight DP over scaled profit, so cost is O(n^2 / epsilon) regardless of capacity.
+// The result is within (1 - epsilon) of the optimum. When even epsilon 0.99 needs a larger table
+// than MAX_TABLE_BITS it returns the greedy solution, with the LP bound as its upper bound.
+class FptasEngine implements KnapsackEngine {
+    // Decision table cap (bits); epsilon is coarsened rather than exceeding it
+    private static final long MAX_TABLE_BITS = 1L << 31;
+    private static final double MAX_EPSILON = 0.99;
+
+    private final double epsilon;
+
+    FptasEngine(double epsilon) {
+        if (epsilon <= 0 || epsilon >= 1) {
+            throw new IllegalArgumentException("Epsilon must be in (0, 1): " + epsilon);
+        }
+        this.epsilon = epsilon;
+    }
+
+    @Override
+    public String name() {
+        return "fptas";
+    }
+
+    @Override
+    public KnapsackSolution solve(int[] weights, double[] profits, int capacity) {
+        LinearRelaxation items = new LinearRelaxation(weights, profits, capacity);
+        int n = items.size();
+        if (n == 0) {
+            return new KnapsackSolution(name(), new int[0], 0, 0);
+        }
+
+        double maxProfit = 0;
+        for (double profit : items.profits) {
+            maxProfit = Math.max(maxProfit, profit);
+        }
+
+        double effectiveEpsilon = epsilon;
+        double scale = effectiveEpsilon * maxProfit / n;
+        int[] scaled = new int[n];
+        long totalScaled = scaleProfits(items.profits, scale, scaled);
+        // Flooring can leave the table slightly over the cap after one coarsening, so repeat
+        while (tableBits(n, totalScaled) > MAX_TABLE_BITS) {
+            if (effectiveEpsilon >= MAX_EPSILON) {
+                int[] selected = items.greedy(capacity);
+                return new KnapsackSolution(name(), selected, KnapsackSolution.totalProfit(selected, profits),
+                        items.bound(0, capacity, 0));
+            }
+            double coarsen = Math.max(1.01, tableBits(n, totalScaled) / MAX_TABLE_BITS);
+            effectiveEpsilon = Math.min(MAX_EPSILON, effectiveEpsilon * coarsen);
+            scale = effectiveEpsilon * maxProfit / n;
+            totalScaled = scaleProfits(items.profits, scale, scaled);
+        }
+
+        // Under the cap, so top and the table size fit an int
+        int top = (int) totalScaled;
+        int words = (top >>> 6) + 1;
+        if ((long) n * words > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Knapsack too large: " + n + " items x " + top + " scaled profit");
+        }
+        long[] minWeight = new long[top + 1];
+        Arrays.fill(minWeight, Long.MAX_VALUE);
+        minWeight[0] = 0;
+        long[] chosen = new long[n * words];
+        Metrics.count(Metrics.Counter.DP_CELLS, (long) n * (top + 1));
+
+        for (int i = 0; i < n; i++) {
+            int value = scaled[i];
+            int weight = items.weights[i];
+            int rowOffset = i * words;
+            for (int q = top; q >= value; q--) {
+                long base = minWeight[q - value];
+                if (base == Long.MAX_VALUE) continue;
+                long candidate = base + weight;
+                if (candidate <= capacity && candidate < minWeight[q]) {
+                    minWeight[q] = candidate;
+                    chosen[rowOffset + (q >>> 6)] |= 1L << q;
+                }
+            }
+        }
+
+        int q = top;
+        while (minWeight[q] == Long.MAX_VALUE) q--;
+
+        int[] selected = new int[n];
+        int count = 0;
+        for (int i = n - 1; i >= 0; i--) {
+            if ((chosen[i * words + (q >>> 6)] & (1L << q)) != 0) {
+                selected[count++] = items.order[i];
+                q -= scaled[i];
+            }
+        }
+        selected = Arrays.copyOf(selected, count);
+
+        double profit = KnapsackSolution.totalProfit(selected, profits);
+        double upperBound = Math.min(items.bound(0, capacity, 0), profit / (1 - effectiveEpsilon));
+        return new KnapsackSolution(name(), selected, profit, upperBound);
+    }
+
+    // In double: n x total scaled profit can pass Long.MAX_VALUE before the cap rejects it
+    private static double tableBits(int n, long totalScaled) {
+        return (double) n * (totalScaled + 1);
+    }
+
+    private static long scaleProfits(double[] profits, double scale, int[] scaled) {
+        long total = 0;
+        for (int i = 0; i < profits.length; i++) {
+            scaled[i] = (int) Math.floor(profits[i] / scale);
+            total += scaled[i];
+        }
+        return total;
+    }
+}
@@ -0,0 +1,118 @@
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// One immutable version of the route network. StateGraph publishes a new snapshot for every
+// committed edit; a reader that holds one sees the same states and routes for as long as it keeps
+// it, however many edits land meanwhile. The CSR graph, A* router and shortest-path trees are
+// derived lazily per snapshot and shared by every reader of that version.
+class GraphSnapshot {
+    final long version;
+    private final Map<String, State> states;
+    private final Map<String, Map<String, Integer>> routes;
+    private final List<String> stateNames; // dense id -> state name
+    private volatile CompactGraph compactGraph;
+    private volatile AStarRouter router;
+    private final Map<String, ShortestPathTree> shortestPathTrees;
+
+    // The maps and list are owned by the snapshot from here on and must never be modified;
+    // compactGraph and trees may be carried over from the previous version when still valid
+    GraphSnapshot(long version, Map<String, State> states, Map<String, Map<String, Integer>> routes,
+                  List<String> stateNames, CompactGraph compactGraph, Map<String, ShortestPathTree> trees) {
+        this.version = version;
+        this.states = Collections.unmodifiableMap(states);
+        this.routes = Collections.unmodifiableMap(routes);
+        this.stateNames = Collections.unmodifiableList(stateNames);
+        this.compactGraph = compactGraph;
+        this.shortestPathTrees = new ConcurrentHashMap<>(trees);
+    }
+
+    static GraphSnapshot empty() {
+        return new GraphSnapshot(0, Collections.<String, State>emptyMap(),
+                Collections.<String, Map<String, Integer>>emptyMap(), Collections.<String>emptyList(),
+                null, Collections.<String, ShortestPathTree>emptyMap());
+    }
+
+    public boolean hasState(String state) {
+        return states.containsKey(state);
+    }
+
+    public State getState(String state) {
+        return states.get(state);
+    }
+
+    Map<String, State> states() {
+        return states;
+    }
+
+    Map<String, Map<String, Integer>> routes() {
+        return routes;
+    }
+
+    List<String> stateNames() {
+        return stateNames;
+    }
+
+    // Built once per snapshot, on first use
+    CompactGraph getCompactGraph() {
+        CompactGraph graph = compactGraph;
+        if (graph == null) {
+            synchronized (this) {
+                graph = compactGraph;
+                if (graph == null) {
+                    graph = CompactGraph.build(stateNames.toArray(new String[0]), routes);
+                    compactGraph = graph;
+                }
+            }
+        }
+        return graph;
+    }
+
+    AStarRouter getRouter() {
+        AStarRouter current = router;
+        if (current == null) {
+            synchronized (this) {
+                current = router;
+                if (current == null) {
+                    CompactGraph graph = getCompactGraph();
+                    double[] latitudes = new double[graph.size()];
+                    double[] longitudes = new double[graph.size()];
+                    for (int v = 0; v < graph.size(); v++) {
+                        State state = states.get(graph.nameOf(v));
+                        latitudes[v] = state.latitude;
+                        longitudes[v] = state.longitude;
+                    }
+                    current = new AStarRouter(graph, latitudes, longitudes);
+                    router = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    boolean hasShortestPathTree(String start) {
+        return shortestPathTrees.containsKey(start);
+    }
+
+    Map<String, ShortestPathTree> shortestPathTrees() {
+        return shortestPathTrees;
+    }
+
+    // One Dijkstra per source; every distance and path lookup from that source reads this tree.
+    // Two threads missing at once may both compute the same tree.
+    public ShortestPathTree getShortestPathTree(String start) {
+        ShortestPathTree tree = shortestPathTrees.get(start);
+        if (tree == null) {
+            CompactGraph graph = getCompactGraph();
+            int source = graph.idOf(start);
+            if (source < 0) {
+                throw new IllegalArgumentException("Invalid state: " + start);
+            }
+            tree = graph.shortestPathTree(source);
+            ShortestPathTree existing = shortestPathTrees.putIfAbsent(start, tree);
+            if (existing != null) tree = existing;
+        }
+        return tree;
+    }
+}
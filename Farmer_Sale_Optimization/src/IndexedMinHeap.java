@@ -0,0 +1,106 @@
+import java.util.Arrays;
+
+// Binary min-heap over dense int ids with decrease-key; no boxing, no stale entries
+class IndexedMinHeap {
+    private final int[] heap;      // heap slot -> id
+    private final int[] positions; // id -> heap slot, -1 when absent
+    private final int[] keys;      // id -> priority
+    private int size;
+    private int pushes;      // inserts plus decrease-keys, for Metrics
+
+    public IndexedMinHeap(int capacity) {
+        this.heap = new int[capacity];
+        this.positions = new int[capacity];
+        this.keys = new int[capacity];
+        Arrays.fill(positions, -1);
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // Key of the element pollMin() would return; the heap must not be empty
+    public int minKey() {
+        return keys[heap[0]];
+    }
+
+    public int pushCount() {
+        return pushes;
+    }
+
+    // Inserts id, or lowers its key if it is already queued with a larger one
+    public void insertOrDecrease(int id, int key) {
+        int slot = positions[id];
+        if (slot < 0) {
+            pushes++;
+            slot = size++;
+            heap[slot] = id;
+            positions[id] = slot;
+            keys[id] = key;
+            siftUp(slot);
+        } else if (key < keys[id]) {
+            pushes++;
+            keys[id] = key;
+            siftUp(slot);
+        }
+    }
+
+    // Empties the heap in O(size), so one instance can serve many small searches
+    public void clear() {
+        for (int i = 0; i < size; i++) {
+            positions[heap[i]] = -1;
+        }
+        size = 0;
+    }
+
+    public int pollMin() {
+        int min = heap[0];
+        positions[min] = -1;
+        size--;
+        if (size > 0) {
+            int last = heap[size];
+            heap[0] = last;
+            positions[last] = 0;
+            siftDown(0);
+        }
+        return min;
+    }
+
+    private void siftUp(int slot) {
+        int id = heap[slot];
+        int key = keys[id];
+        while (slot > 0) {
+            int parentSlot = (slot - 1) >>> 1;
+            int parent = heap[parentSlot];
+            if (keys[parent] <= key) break;
+            heap[slot] = parent;
+            positions[parent] = slot;
+            slot = parentSlot;
+        }
+        heap[slot] = id;
+        positions[id] = slot;
+    }
+
+    private void siftDown(int slot) {
+        int id = heap[slot];
+        int key = keys[id];
+        int half = size >>> 1;
+        while (slot < half) {
+            int child = 2 * slot + 1;
+            int right = child + 1;
+            if (right < size && keys[heap[right]] < keys[heap[child]]) {
+                child = right;
+            }
+            if (key <= keys[heap[child]]) break;
+            heap[slot] = heap[child];
+            positions[heap[child]] = slot;
+            slot = child;
+        }
+        heap[slot] = id;
+        positions[id] = slot;
+    }
+}
@@ -0,0 +1,7 @@
+// A 0/1 knapsack algorithm over integer weights; ProfitOptimizer dispatches to one of these
+interface KnapsackEngine {
+
+    String name();
+
+    KnapsackSolution solve(int[] weights, double[] profits, int capacity);
+}
@@ -0,0 +1,36 @@
+// Items an engine picked, with the best upper bound it could prove on the optimum
+class KnapsackSolution {
+    final String engine;
+    final int[] selected;   // indices into the engine's input arrays
+    final double profit;
+    final double upperBound;
+
+    KnapsackSolution(String engine, int[] selected, double profit, double upperBound) {
+        this.engine = engine;
+        this.selected = selected;
+        this.profit = profit;
+        this.upperBound = Math.max(profit, upperBound);
+    }
+
+    static KnapsackSolution exact(String engine, int[] selected, double[] profits) {
+        double profit = totalProfit(selected, profits);
+        return new KnapsackSolution(engine, selected, profit, profit);
+    }
+
+    static double totalProfit(int[] selected, double[] profits) {
+        double profit = 0;
+        for (int index : selected) {
+            profit += profits[index];
+        }
+        return profit;
+    }
+
+    // Relative distance to the proven bound; 0 means the solution is optimal
+    public double optimalityGap() {
+        return upperBound > 0 ? (upperBound - profit) / upperBound : 0;
+    }
+
+    public boolean isOptimal() {
+        return upperBound <= profit;
+    }
+}
@@ -0,0 +1,165 @@
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+// 0/1 knapsack over integer capacity: one rolling profit row plus one decision bit per (item, capacity) cell
+class KnapsackSolver {
+    // Rows narrower than this are not worth forking
+    static final int PARALLEL_THRESHOLD = 1 << 15;
+    // Cells per fork-join leaf; a multiple of 64 so no two leaves share a decision word
+    static final int BLOCK_SIZE = 1 << 12;
+
+    public static int[] solve(int[] weights, double[] profits, int capacity) {
+        return solve(weights, profits, capacity, false);
+    }
+
+    // Returns the indices of the chosen items, last item first
+    public static int[] solve(int[] weights, double[] profits, int capacity, boolean parallel) {
+        return solveTable(weights, profits, capacity, parallel).select(capacity);
+    }
+
+    // Keeps the final row and the decision bits, which answer every capacity up to the maximum
+    public static Table solveTable(int[] weights, double[] profits, int capacity, boolean parallel) {
+        int n = weights.length;
+        int words = (capacity >>> 6) + 1;
+        if ((long) n * words > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Knapsack too large: " + n + " items x " + capacity + " cells");
+        }
+
+        Metrics.count(Metrics.Counter.DP_CELLS, (long) n * (capacity + 1));
+        long[] chosen = new long[n * words];
+        double[] best;
+        if (parallel && capacity + 1 >= PARALLEL_THRESHOLD) {
+            best = fillParallel(weights, profits, capacity, chosen, ForkJoinPool.commonPool());
+        } else {
+            best = fillSequential(weights, profits, capacity, chosen);
+        }
+        return new Table(weights, best, chosen, words);
+    }
+
+    static class Table {
+        private final int[] weights;
+        private final double[] best;  // best[w]: best profit using at most w cells
+        private final long[] chosen;
+        private final int words;
+
+        Table(int[] weights, double[] best, long[] chosen, int words) {
+            this.weights = weights;
+            this.best = best;
+            this.chosen = chosen;
+            this.words = words;
+        }
+
+        public int maxCapacity() {
+            return best.length - 1;
+        }
+
+        public double bestProfit(int capacity) {
+            return best[capacity];
+        }
+
+        // Reconstruct solution for any capacity up to the one the table was built for
+        public int[] select(int capacity) {
+            int n = weights.length;
+            int[] selected = new int[n];
+            int count = 0;
+            int w = capacity;
+            for (int i = n - 1; i >= 0; i--) {
+                if ((chosen[i * words + (w >>> 6)] & (1L << w)) != 0) {
+                    selected[count++] = i;
+                    w -= weights[i];
+                }
+            }
+            return Arrays.copyOf(selected, count);
+        }
+    }
+
+    private static double[] fillSequential(int[] weights, double[] profits, int capacity, long[] chosen) {
+        int words = (capacity >>> 6) + 1;
+        double[] best = new double[capacity + 1];
+
+        for (int i = 0; i < weights.length; i++) {
+            int weight = weights[i];
+            double profit = profits[i];
+            int rowOffset = i * words;
+            // Walk capacity downwards so best[] still holds the previous row where we read it
+            for (int w = capacity; w >= weight; w--) {
+                double includeItem = best[w - weight] + profit;
+                if (includeItem > best[w]) {
+                    best[w] = includeItem;
+                    chosen[rowOffset + (w >>> 6)] |= 1L << w;
+                }
+            }
+        }
+        return best;
+    }
+
+    // Each cell of a row depends only on the previous row, so a row is a parallel map over
+    // capacity. Two rows are swapped per item; the per-cell arithmetic matches fillSequential
+    // exactly, so both paths make the same decisions.
+    private static double[] fillParallel(int[] weights, double[] profits, int capacity,
+                                         long[] chosen, ForkJoinPool pool) {
+        int words = (capacity >>> 6) + 1;
+        double[] previous = new double[capacity + 1];
+        double[] current = new double[capacity + 1];
+
+        for (int i = 0; i < weights.length; i++) {
+            pool.invoke(new RowTask(previous, current, chosen, i * words,
+                    weights[i], profits[i], 0, capacity + 1));
+            double[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous;
+    }
+
+    private static class RowTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final double[] previous;
+        private final double[] current;
+        private final long[] chosen;
+        private final int rowOffset;
+        private final int weight;
+        private final double profit;
+        private final int from;
+        private final int to;
+
+        RowTask(double[] previous, double[] current, long[] chosen, int rowOffset,
+                int weight, double profit, int from, int to) {
+            this.previous = previous;
+            this.current = current;
+            this.chosen = chosen;
+            this.rowOffset = rowOffset;
+            this.weight = weight;
+            this.profit = profit;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= BLOCK_SIZE) {
+                computeBlock();
+                return;
+            }
+            int middle = from + (((to - from) / 2 + BLOCK_SIZE - 1) / BLOCK_SIZE) * BLOCK_SIZE;
+            invokeAll(new RowTask(previous, current, chosen, rowOffset, weight, profit, from, middle),
+                    new RowTask(previous, current, chosen, rowOffset, weight, profit, middle, to));
+        }
+
+        private void computeBlock() {
+            int split = Math.max(from, Math.min(to, weight));
+            System.arraycopy(previous, from, current, from, split - from);
+            for (int w = split; w < to; w++) {
+                double includeItem = previous[w - weight] + profit;
+                if (includeItem > previous[w]) {
+                    current[w] = includeItem;
+                    chosen[rowOffset + (w >>> 6)] |= 1L << w;
+                } else {
+                    current[w] = previous[w];
+                }
+            }
+        }
+    }
+}
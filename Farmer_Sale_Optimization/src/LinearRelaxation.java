@@ -0,0 +1,70 @@
+import java.util.Arrays;
+
+// Items worth considering (positive profit, fit in the truck) sorted by profit per weight,
+// which gives the Dantzig fractional upper bound used by the approximate engines
+class LinearRelaxation {
+    final int[] order;      // original item index, best ratio first
+    final int[] weights;
+    final double[] profits;
+
+    LinearRelaxation(int[] weights, double[] profits, int capacity) {
+        Integer[] candidates = new Integer[weights.length];
+        int count = 0;
+        for (int i = 0; i < weights.length; i++) {
+            if (profits[i] > 0 && weights[i] <= capacity) {
+                candidates[count++] = i;
+            }
+        }
+        candidates = Arrays.copyOf(candidates, count);
+        // Compare p1/w1 with p2/w2 without dividing, so zero weights sort first
+        Arrays.sort(candidates, (a, b) -> Double.compare(profits[b] * weights[a], profits[a] * weights[b]));
+
+        this.order = new int[count];
+        this.weights = new int[count];
+        this.profits = new double[count];
+        for (int i = 0; i < count; i++) {
+            order[i] = candidates[i];
+            this.weights[i] = weights[candidates[i]];
+            this.profits[i] = profits[candidates[i]];
+        }
+    }
+
+    int size() {
+        return order.length;
+    }
+
+    // Every item that still fits, in ratio order, or the single most profitable item when that earns
+    // more: at least half the optimum. Returns original indices.
+    int[] greedy(long capacity) {
+        int[] selected = new int[order.length];
+        int count = 0;
+        long remaining = capacity;
+        double profit = 0;
+        int bestSingle = -1;
+        for (int i = 0; i < order.length; i++) {
+            if (weights[i] <= remaining) {
+                remaining -= weights[i];
+                profit += profits[i];
+                selected[count++] = order[i];
+            }
+            if (bestSingle < 0 || profits[i] > profits[bestSingle]) bestSingle = i;
+        }
+        if (bestSingle >= 0 && profits[bestSingle] > profit) {
+            return new int[] {order[bestSingle]};
+        }
+        return Arrays.copyOf(selected, count);
+    }
+
+    // Best profit reachable from sorted position 'from' if the next item may be taken fractionally
+    double bound(int from, long remaining, double profit) {
+        for (int i = from; i < order.length; i++) {
+            if (weights[i] <= remaining) {
+                remaining -= weights[i];
+                profit += profits[i];
+            } else {
+                return profit + profits[i] * remaining / weights[i];
+            }
+        }
+        return profit;
+    }
+}
@@ -1,5 +1,18 @@
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import javax.swing.JFileChooser;
 import javax.swing.filechooser.FileNameExtensionFilter;
 import java.io.PrintWriter;
@@ -54,22 +67,215 @@ class FoodItem {
     }
 }
 
+// Route network shared by every planning thread. Readers take the current immutable GraphSnapshot
+// without locking; writers go through an Edit, which copies only the maps it touches and publishes
+// the next version atomically on commit. Edits are serialized with each other but never block readers.
 class StateGraph {
-    private Map<String, State> states;
-    private Map<String, Map<String, Integer>> routes;
-    private String currentState;
+    private final AtomicReference<GraphSnapshot> current = new AtomicReference<>(GraphSnapshot.empty());
+    private final ReentrantLock editLock = new ReentrantLock();
+    private volatile boolean pointToPointRouting; // single-pair lookups use A* unless a tree is cached
+    private volatile ContractionHierarchy hierarchy;
+    private volatile boolean hierarchyEnabled;
+    private volatile Path hierarchyFile; // where the hierarchy is kept between runs, or null
+    private final AtomicBoolean hierarchyRebuildPending = new AtomicBoolean();
+    private ExecutorService hierarchyBuilder;
+    private volatile String currentState;
     private static final String STATES_MARKER = "// states.csv";
     private static final String ROUTES_MARKER = "// routes.csv";
     private static final String FOOD_MARKER = "// food_items.csv";
     private static final String DEMANDS_MARKER = "// state_demands.csv";
 
-    public StateGraph() {
-        states = new HashMap<>();
-        routes = new HashMap<>();
+    private static final class RouteChange {
+        final String from;
+        final String to;
+        final int distance;
+
+        RouteChange(String from, String to, int distance) {
+            this.from = from;
+            this.to = to;
+            this.distance = distance;
+        }
     }
 
+    // A batch of state and route changes made on a private copy of the current snapshot; nothing is
+    // visible to readers until commit. Holds the edit lock from StateGraph.edit() until commit or
+    // close, so it belongs to the thread that opened it.
+    final class Edit implements AutoCloseable {
+        private final GraphSnapshot base;
+        private Map<String, State> states;
+        private Map<String, Map<String, Integer>> routes;
+        private List<String> stateNames;
+        private final Set<String> copiedStates = new HashSet<>();
+        private final Set<String> copiedRoutes = new HashSet<>();
+        private final List<RouteChange> shortenedRoutes = new ArrayList<>(); // replayed on cached trees
+        private boolean changed;
+        private boolean routesChanged; // the CSR graph must be rebuilt
+        private boolean pathsInvalid;  // cached trees cannot be repaired and are dropped
+        private CompactGraph restoredGraph;
+        private boolean open = true;
+
+        private Edit(GraphSnapshot base) {
+            this.base = base;
+            this.states = base.states();
+            this.routes = base.routes();
+            this.stateNames = base.stateNames();
+        }
+
+        public boolean hasState(String state) {
+            return states.containsKey(state);
+        }
+
+        public void addState(String stateName, double latitude, double longitude) {
+            ensureOpen();
+            State previous = writableStates().put(stateName, new State(stateName, latitude, longitude));
+            copiedStates.add(stateName);
+            changed = true;
+            if (previous == null) {
+                writableStateNames().add(stateName);
+                routesChanged = true;
+                pathsInvalid = true;
+            }
+            // Otherwise only the coordinates moved; the routes and their paths still hold
+        }
+
+        public void addRoute(String fromState, String toState, int distance) {
+            ensureOpen();
+            if (!states.containsKey(fromState) || !states.containsKey(toState)) {
+                throw new IllegalArgumentException("Invalid state: " + (states.containsKey(fromState) ? toState : fromState));
+            }
+            Map<String, Integer> existing = routes.get(fromState);
+            Integer previousDistance = existing == null ? null : existing.get(toState);
+
+            writableRoutes(fromState).put(toState, distance);
+            writableRoutes(toState).put(fromState, distance);
+
+            State from = writableState(fromState);
+            State to = writableState(toState);
+            from.adjacentStates.add(new Edge(to, distance));
+            to.adjacentStates.add(new Edge(from, distance));
+            changed = true;
+
+            if (previousDistance != null && previousDistance == distance) return;
+            routesChanged = true;
+            if (previousDistance != null && distance > previousDistance) {
+                // A longer route can lengthen cached paths; start over
+                pathsInvalid = true;
+            } else {
+                shortenedRoutes.add(new RouteChange(fromState, toState, distance));
+            }
+        }
+
+        // Drops every state and route, e.g. before restoring from a snapshot
+        void clear() {
+            ensureOpen();
+            states = new HashMap<>();
+            routes = new HashMap<>();
+            stateNames = new ArrayList<>();
+            copiedStates.clear();
+            copiedRoutes.clear();
+            changed = true;
+            routesChanged = true;
+            pathsInvalid = true;
+        }
+
+        // Publishes the edit as the next version. Cached shortest-path trees survive when the edit
+        // only added or shortened routes: each is patched from the changed routes' endpoints
+        // instead of being recomputed. A longer route or a new state drops them.
+        public void commit() {
+            ensureOpen();
+            try {
+                if (!changed) return;
+                GraphSnapshot next;
+                if (!routesChanged) {
+                    next = new GraphSnapshot(base.version + 1, states, routes, stateNames,
+                            base.getCompactGraph(), base.shortestPathTrees());
+                } else if (restoredGraph != null) {
+                    next = new GraphSnapshot(base.version + 1, states, routes, stateNames, restoredGraph,
+                            Collections.<String, ShortestPathTree>emptyMap());
+                } else if (pathsInvalid || base.shortestPathTrees().isEmpty()) {
+                    next = new GraphSnapshot(base.version + 1, states, routes, stateNames, null,
+                            Collections.<String, ShortestPathTree>emptyMap());
+                } else {
+                    CompactGraph graph = CompactGraph.build(stateNames.toArray(new String[0]), routes);
+                    Map<String, ShortestPathTree> trees = new HashMap<>();
+                    for (Map.Entry<String, ShortestPathTree> entry : base.shortestPathTrees().entrySet()) {
+                        ShortestPathTree tree = entry.getValue();
+                        for (RouteChange route : shortenedRoutes) {
+                            tree = graph.relaxEdge(tree, graph.idOf(route.from), graph.idOf(route.to), route.distance);
+                        }
+                        trees.put(entry.getKey(), tree);
+                    }
+                    next = new GraphSnapshot(base.version + 1, states, routes, stateNames, graph, trees);
+                }
+                current.set(next);
+                if (routesChanged) scheduleHierarchyRebuild();
+            } finally {
+                open = false;
+                editLock.unlock();
+            }
+        }
+
+        // Discards the edit unless it was committed
+        @Override
+        public void close() {
+            if (open) {
+                open = false;
+                editLock.unlock();
+            }
+        }
+
+        private void ensureOpen() {
+            if (!open) throw new IllegalStateException("Edit already committed or closed");
+        }
+
+        private Map<String, State> writableStates() {
+            if (states == base.states()) states = new HashMap<>(states);
+            return states;
+        }
+
+        private List<String> writableStateNames() {
+            if (stateNames == base.stateNames()) stateNames = new ArrayList<>(stateNames);
+            return stateNames;
+        }
+
+        // States reachable from the published snapshot are copied before their adjacency changes
+        private State writableState(String name) {
+            State state = states.get(name);
+            if (copiedStates.add(name)) {
+                State copy = new State(state.name, state.latitude, state.longitude);
+                copy.adjacentStates.addAll(state.adjacentStates);
+                copy.demands.putAll(state.demands);
+                writableStates().put(name, copy);
+                state = copy;
+            }
+            return state;
+        }
+
+        private Map<String, Integer> writableRoutes(String state) {
+            if (routes == base.routes()) routes = new HashMap<>(routes);
+            Map<String, Integer> stateRoutes = routes.get(state);
+            if (copiedRoutes.add(state)) {
+                stateRoutes = stateRoutes == null ? new HashMap<>() : new HashMap<>(stateRoutes);
+                routes.put(state, stateRoutes);
+            }
+            return stateRoutes;
+        }
+    }
+
+    // Starts an edit on the current version, waiting for any other edit to finish first
+    public Edit edit() {
+        editLock.lock();
+        return new Edit(current.get());
+    }
+
+    // The current version; never blocks, and stays consistent however long the caller keeps it
+    public GraphSnapshot snapshot() {
+        return current.get();
+    }
+
+    // Interactive session state only; planners take the farmer state as an argument
     public void setCurrentState(String state) {
-        if (states.containsKey(state)) {
+        if (snapshot().hasState(state)) {
             this.currentState = state;
         } else {
             throw new IllegalArgumentException("Invalid state: " + state);
@@ -80,79 +286,128 @@ class StateGraph {
         return currentState;
     }
 
-    public void loadFromTextFile(String filename, ProfitOptimizer optimizer) {
-        try (BufferedReader br = new BufferedReader(new FileReader(filename))) {
-            String line;
-            String currentSection = "";
-            boolean isFirstLine = true;
+    public long getVersion() {
+        return snapshot().version;
+    }
 
-            while ((line = br.readLine()) != null) {
-                if (line.trim().isEmpty()) continue;
+    public boolean hasState(String state) {
+        return snapshot().hasState(state);
+    }
 
-                if (line.startsWith("//")) {
-                    currentSection = line;
-                    isFirstLine = true;
-                    continue;
-                }
+    public State getState(String state) {
+        return snapshot().getState(state);
+    }
 
-                if (isFirstLine) {
-                    isFirstLine = false;
-                    continue; // Skip header lines
+    // Replaces the whole graph with states and CSR routes read back from a snapshot
+    void restore(double[] latitudes, double[] longitudes, CompactGraph graph) {
+        try (Edit edit = edit()) {
+            edit.clear();
+            for (int v = 0; v < graph.size(); v++) {
+                edit.addState(graph.nameOf(v), latitudes[v], longitudes[v]);
+            }
+
+            int[] offsets = graph.offsets();
+            int[] targets = graph.targets();
+            int[] weights = graph.weights();
+            for (int v = 0; v < graph.size(); v++) {
+                for (int e = offsets[v]; e < offsets[v + 1]; e++) {
+                    // Each route is stored in both directions; add it once
+                    if (v <= targets[e]) {
+                        edit.addRoute(graph.nameOf(v), graph.nameOf(targets[e]), weights[e]);
+                    }
                 }
+            }
+            edit.restoredGraph = graph;
+            edit.commit();
+        }
+    }
 
-                switch (currentSection) {
-                    case STATES_MARKER:
-                        processStateLine(line);
-                        break;
-                    case ROUTES_MARKER:
-                        processRouteLine(line);
-                        break;
-                    case FOOD_MARKER:
-                        optimizer.loadFoodItems(line);
-                        break;
-                    case DEMANDS_MARKER:
-                        optimizer.loadStateDemand(line);
-                        break;
+    public void loadFromTextFile(String filename, ProfitOptimizer optimizer) {
+        long start = Metrics.start();
+        try (Edit edit = edit();
+             ProfitOptimizer.Edit catalog = optimizer.edit()) {
+            try (BufferedReader br = new BufferedReader(new FileReader(filename))) {
+                String line;
+                String currentSection = "";
+                boolean isFirstLine = true;
+
+                while ((line = br.readLine()) != null) {
+                    if (line.trim().isEmpty()) continue;
+
+                    if (line.startsWith("//")) {
+                        currentSection = line;
+                        isFirstLine = true;
+                        continue;
+                    }
+
+                    if (isFirstLine) {
+                        isFirstLine = false;
+                        continue; // Skip header lines
+                    }
+
+                    switch (currentSection) {
+                        case STATES_MARKER:
+                            processStateLine(edit, line);
+                            break;
+                        case ROUTES_MARKER:
+                            processRouteLine(edit, line);
+                            break;
+                        case FOOD_MARKER:
+                            catalog.loadFoodItem(line);
+                            break;
+                        case DEMANDS_MARKER:
+                            catalog.loadStateDemand(line);
+                            break;
+                    }
                 }
+            } catch (IOException e) {
+                e.printStackTrace();
             }
-        } catch (IOException e) {
-            e.printStackTrace();
+            // Whatever was read before an error is kept, as one version
+            edit.commit();
+            catalog.commit();
         }
+        Metrics.stop(Metrics.Phase.LOAD, start);
     }
 
-    private void processStateLine(String line) {
+    private void processStateLine(Edit edit, String line) {
         String[] data = line.split(",");
         String stateName = data[0];
         double latitude = Double.parseDouble(data[1]);
         double longitude = Double.parseDouble(data[2]);
-        states.put(stateName, new State(stateName, latitude, longitude));
+        edit.addState(stateName, latitude, longitude);
+    }
+
+    public void addState(String stateName, double latitude, double longitude) {
+        try (Edit edit = edit()) {
+            edit.addState(stateName, latitude, longitude);
+            edit.commit();
+        }
     }
 
-    private void processRouteLine(String line) {
+    private void processRouteLine(Edit edit, String line) {
         String[] data = line.split(",");
         String fromState = data[0];
         String toState = data[1];
         int distance = Integer.parseInt(data[2]);
-        addRoute(fromState, toState, distance);
+        edit.addRoute(fromState, toState, distance);
     }
 
     public void addRoute(String fromState, String toState, int distance) {
-        routes.putIfAbsent(fromState, new HashMap<>());
-        routes.putIfAbsent(toState, new HashMap<>());
-
-        routes.get(fromState).put(toState, distance);
-        routes.get(toState).put(fromState, distance);
-
-        State from = states.get(fromState);
-        State to = states.get(toState);
+        try (Edit edit = edit()) {
+            edit.addRoute(fromState, toState, distance);
+            edit.commit();
+        }
+    }
 
-        from.adjacentStates.add(new Edge(to, distance));
-        to.adjacentStates.add(new Edge(from, distance));
+    // Integer-indexed CSR form of the current routes
+    CompactGraph getCompactGraph() {
+        return snapshot().getCompactGraph();
     }
 
     public void addUserDefinedRoute(Scanner scanner) {
         System.out.println("\nAvailable states:");
-        states.keySet().forEach(state -> System.out.println("- " + state));
+        snapshot().states().keySet().forEach(state -> System.out.println("- " + state));
 
         System.out.print("\nEnter first state name: ");
         String fromState = scanner.nextLine();
@@ -163,7 +418,7 @@ class StateGraph {
         System.out.print("Enter distance between states (in km): ");
         int distance = Integer.parseInt(scanner.nextLine());
 
-        if (!states.containsKey(fromState) || !states.containsKey(toState)) {
+        if (!hasState(fromState) || !hasState(toState)) {
             System.out.println("One or both states not found!");
             return;
         }
@@ -174,7 +429,7 @@ class StateGraph {
 
     public void printRoutes() {
         System.out.println("\nCurrent routes in the graph:");
-        for (Map.Entry<String, Map<String, Integer>> fromEntry : routes.entrySet()) {
+        for (Map.Entry<String, Map<String, Integer>> fromEntry : snapshot().routes().entrySet()) {
             String fromState = fromEntry.getKey();
             for (Map.Entry<String, Integer> toEntry : fromEntry.getValue().entrySet()) {
                 String toState = toEntry.getKey();
@@ -187,117 +442,630 @@ class StateGraph {
     }
 
     public int getShortestPathDistance(String start, String end) {
-        Map<String, Integer> distances = new HashMap<>();
-        Map<String, String> previousStates = new HashMap<>();
-        PriorityQueue<String> queue = new PriorityQueue<>(
-                (a, b) -> distances.getOrDefault(a, Integer.MAX_VALUE) -
-                        distances.getOrDefault(b, Integer.MAX_VALUE));
+        GraphSnapshot snapshot = snapshot();
+        if (!snapshot.hasShortestPathTree(start)) {
+            Route route = singlePairRoute(snapshot, start, end);
+            if (route != null) return route.distance;
+        }
+        return snapshot.getShortestPathTree(start).distanceTo(end);
+    }
 
-        // Initialize distances
-        for (String state : states.keySet()) {
-            distances.put(state, Integer.MAX_VALUE);
+    public void printShortestPath(String start, String end, PrintWriter outputWriter) {
+        printShortestPath(snapshot(), start, end, outputWriter);
+    }
+
+    // Prints the route as it was in the given version, e.g. the one a plan was computed against
+    void printShortestPath(GraphSnapshot snapshot, String start, String end, PrintWriter outputWriter) {
+        if (!snapshot.hasShortestPathTree(start)) {
+            Route route = singlePairRoute(snapshot, start, end);
+            if (route != null) {
+                outputWriter.println("Route: " + String.join(" -> ", route.path));
+                outputWriter.println("Total distance: " + route.distance + " km");
+                return;
+            }
         }
-        distances.put(start, 0);
-        queue.add(start);
+        ShortestPathTree tree = snapshot.getShortestPathTree(start);
 
-        while (!queue.isEmpty()) {
-            String current = queue.poll();
+        outputWriter.println("Route: " + String.join(" -> ", tree.pathTo(end)));
+        outputWriter.println("Total distance: " + tree.distanceTo(end) + " km");
+    }
 
-            if (current.equals(end)) break;
+    // Makes single-pair distance and path lookups run A* instead of a full Dijkstra whenever
+    // no shortest-path tree is cached for the start state
+    public void setPointToPointRouting(boolean pointToPointRouting) {
+        this.pointToPointRouting = pointToPointRouting;
+    }
 
-            if (!routes.containsKey(current)) continue;
+    // Answers a lookup without a full shortest-path tree when a current contraction hierarchy or
+    // A* routing is available; null means the caller should use the tree
+    private Route singlePairRoute(GraphSnapshot snapshot, String start, String end) {
+        if (!hierarchyEnabled && !pointToPointRouting) return null;
+        CompactGraph graph = snapshot.getCompactGraph();
+        int source = graph.idOf(start);
+        int target = graph.idOf(end);
+        if (source < 0 || target < 0) return null;
+
+        ContractionHierarchy current = getContractionHierarchy(snapshot);
+        if (current != null) return current.route(source, target);
+        return pointToPointRouting ? snapshot.getRouter().route(source, target) : null;
+    }
 
-            for (Map.Entry<String, Integer> neighbor : routes.get(current).entrySet()) {
-                String nextState = neighbor.getKey();
-                int newDist = distances.get(current) + neighbor.getValue();
+    // One single-pair search between two states: the contraction hierarchy when it is current,
+    // A* otherwise. The result reports how many nodes it settled.
+    public Route findRoute(String start, String end) {
+        GraphSnapshot snapshot = snapshot();
+        CompactGraph graph = snapshot.getCompactGraph();
+        int source = graph.idOf(start);
+        int target = graph.idOf(end);
+        if (source < 0 || target < 0) {
+            throw new IllegalArgumentException("Invalid state: " + (source < 0 ? start : end));
+        }
+        ContractionHierarchy current = getContractionHierarchy(snapshot);
+        return current != null ? current.route(source, target) : snapshot.getRouter().route(source, target);
+    }
 
-                if (newDist < distances.get(nextState)) {
-                    distances.put(nextState, newDist);
-                    previousStates.put(nextState, current);
-                    queue.add(nextState);
-                }
+    // Preprocesses the routes into a contraction hierarchy for single-pair lookups, reusing the one
+    // saved in file when it was built for exactly these routes (file may be null). From then on
+    // every state or route change rebuilds it in the background; until the rebuild finishes,
+    // lookups use the other searches. Returns true when the saved hierarchy was reused.
+    public boolean enableContractionHierarchy(Path file) {
+        CompactGraph graph = getCompactGraph();
+        hierarchyFile = file;
+        hierarchyEnabled = true;
+        if (file != null && Files.exists(file)) {
+            try {
+                hierarchy = ContractionHierarchy.load(file, graph);
+                return true;
+            } catch (IOException | RuntimeException e) {
+                System.err.println("Rebuilding contraction hierarchy: " + e.getMessage());
             }
         }
+        hierarchy = buildHierarchy(graph);
+        return false;
+    }
 
-        return distances.get(end);
+    // The hierarchy if it was built for the snapshot's routes, otherwise null
+    private ContractionHierarchy getContractionHierarchy(GraphSnapshot snapshot) {
+        ContractionHierarchy current = hierarchy;
+        return current != null && current.graph() == snapshot.getCompactGraph() ? current : null;
     }
 
-    public void printShortestPath(String start, String end, PrintWriter outputWriter) {
-        Map<String, Integer> distances = new HashMap<>();
-        Map<String, String> previousStates = new HashMap<>();
-        PriorityQueue<String> queue = new PriorityQueue<>(
-                (a, b) -> distances.getOrDefault(a, Integer.MAX_VALUE) -
-                        distances.getOrDefault(b, Integer.MAX_VALUE));
+    private ContractionHierarchy buildHierarchy(CompactGraph graph) {
+        ContractionHierarchy built = ContractionHierarchy.build(graph);
+        Path file = hierarchyFile;
+        if (file != null) {
+            try {
+                built.save(file);
+            } catch (IOException e) {
+                System.err.println("Could not save contraction hierarchy: " + e.getMessage());
+            }
+        }
+        return built;
+    }
+
+    // At most one rebuild is queued; one that starts after further changes picks them all up
+    private void scheduleHierarchyRebuild() {
+        if (!hierarchyEnabled || !hierarchyRebuildPending.compareAndSet(false, true)) return;
+        hierarchyBuilder().execute(() -> {
+            hierarchyRebuildPending.set(false);
+            hierarchy = buildHierarchy(getCompactGraph());
+        });
+    }
 
-        // Initialize distances
-        for (String state : states.keySet()) {
-            distances.put(state, Integer.MAX_VALUE);
+    private synchronized ExecutorService hierarchyBuilder() {
+        if (hierarchyBuilder == null) {
+            hierarchyBuilder = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "hierarchy-builder");
+                thread.setDaemon(true);
+                return thread;
+            });
         }
-        distances.put(start, 0);
-        queue.add(start);
+        return hierarchyBuilder;
+    }
 
-        while (!queue.isEmpty()) {
-            String current = queue.poll();
+    // Built with the CSR graph of the current version
+    AStarRouter getRouter() {
+        return snapshot().getRouter();
+    }
 
-            if (current.equals(end)) break;
+    // Safe for concurrent planners; the tree belongs to the version current at the call
+    public ShortestPathTree getShortestPathTree(String start) {
+        return snapshot().getShortestPathTree(start);
+    }
 
-            if (!routes.containsKey(current)) continue;
+}
 
-            for (Map.Entry<String, Integer> neighbor : routes.get(current).entrySet()) {
-                String nextState = neighbor.getKey();
-                int newDist = distances.get(current) + neighbor.getValue();
+class ShortestPathTree {
+    private final CompactGraph graph;
+    final int source;
+    private final int[] distances;
+    private final int[] previous;
+
+    ShortestPathTree(CompactGraph graph, int source, int[] distances, int[] previous) {
+        this.graph = graph;
+        this.source = source;
+        this.distances = distances;
+        this.previous = previous;
+    }
 
-                if (newDist < distances.get(nextState)) {
-                    distances.put(nextState, newDist);
-                    previousStates.put(nextState, current);
-                    queue.add(nextState);
-                }
-            }
-        }
+    // Raw per-id arrays, shared rather than copied; callers must not modify them
+    int[] distances() {
+        return distances;
+    }
 
-        // Reconstruct path
-        List<String> path = new ArrayList<>();
-        String current = end;
-        while (current != null) {
-            path.add(0, current);
-            current = previousStates.get(current);
-        }
+    int[] previous() {
+        return previous;
+    }
 
-        outputWriter.println("Route: " + String.join(" -> ", path));
-        outputWriter.println("Total distance: " + distances.get(end) + " km");
+    public int distanceTo(String state) {
+        int id = graph.idOf(state);
+        return id < 0 ? CompactGraph.UNREACHABLE : distances[id];
     }
 
+    public List<String> pathTo(String state) {
+        List<String> path = new ArrayList<>();
+        int id = graph.idOf(state);
+        if (id < 0) {
+            path.add(state);
+            return path;
+        }
+        for (int current = id; current != CompactGraph.NO_PREVIOUS; current = previous[current]) {
+            path.add(graph.nameOf(current));
+        }
+        Collections.reverse(path);
+        return path;
+    }
 }
 
 class ProfitOptimizer {
     private static final double DAILY_DISTANCE_LIMIT = 900.0; // km per day
     private static final int MAX_DELIVERY_DAYS = 7;
-    private Map<String, FoodItem> foodItems;
-    private Map<String, Map<String, Integer>> stateDemands;
-    private Map<String, TransportPlan> optimalPlans;
+    private static final long TOUR_TIME_BUDGET_MILLIS = 50; // local search per tour
+    private static final double FLOW_COST_SCALE = 1000.0; // min-cost-flow costs in thousandths of a rupee
+    private static final int MARKETS_PER_ORIGIN = 16; // arcs per farmer state in the first cooperative solve
+    private static final int MAX_SEASON_STEPS = 2000; // season capacity cells in the week-by-week DP
+    private final AtomicReference<Catalog> catalog = new AtomicReference<>(new Catalog());
+    private final ReentrantLock editLock = new ReentrantLock();
+    private volatile PlanCache planCache;
+
+    // One immutable version of the food catalog, the state demands and the planning settings.
+    // Every plan reads a single catalog from start to finish, so a concurrent edit never mixes
+    // old and new prices or demands within one result.
+    static final class Catalog {
+        final long version;
+        final Map<String, FoodItem> foodItems;
+        final Map<String, Map<String, Integer>> stateDemands;
+        final boolean boundedQuantities; // ship any quantity up to demand instead of all-or-nothing lots
+        final double weightResolution; // kg per knapsack capacity step
+        final boolean parallelKnapsack; // fork-join each DP row across capacity blocks
+        final KnapsackEngine knapsackEngine; // null: choose per problem size
+        final long solverTimeBudgetNanos;
+        final double approximationEpsilon;
+        private volatile CatalogArrays arrays;
+
+        private Catalog() {
+            this(0, Collections.<String, FoodItem>emptyMap(), Collections.<String, Map<String, Integer>>emptyMap(),
+                    false, 1.0, false, null, 2_000_000_000L, 0.01);
+        }
+
+        private Catalog(long version, Map<String, FoodItem> foodItems, Map<String, Map<String, Integer>> stateDemands,
+                        boolean boundedQuantities, double weightResolution, boolean parallelKnapsack,
+                        KnapsackEngine knapsackEngine, long solverTimeBudgetNanos, double approximationEpsilon) {
+            this.version = version;
+            this.foodItems = Collections.unmodifiableMap(foodItems);
+            this.stateDemands = Collections.unmodifiableMap(stateDemands);
+            this.boundedQuantities = boundedQuantities;
+            this.weightResolution = weightResolution;
+            this.parallelKnapsack = parallelKnapsack;
+            this.knapsackEngine = knapsackEngine;
+            this.solverTimeBudgetNanos = solverTimeBudgetNanos;
+            this.approximationEpsilon = approximationEpsilon;
+        }
+
+        // Built on first use; two threads racing here build equal copies, and either may win
+        CatalogArrays arrays() {
+            CatalogArrays built = arrays;
+            if (built == null) {
+                built = CatalogArrays.build(foodItems, stateDemands);
+                arrays = built;
+            }
+            return built;
+        }
+    }
+
+    // Catalog changes on private copies of the maps they touch, published as the next version on
+    // commit. Holds the edit lock from ProfitOptimizer.edit() until commit or close.
+    final class Edit implements AutoCloseable {
+        private final Catalog base;
+        private Map<String, FoodItem> foodItems;
+        private Map<String, Map<String, Integer>> stateDemands;
+        private final Set<String> copiedDemands = new HashSet<>();
+        private boolean boundedQuantities;
+        private double weightResolution;
+        private boolean parallelKnapsack;
+        private KnapsackEngine knapsackEngine;
+        private long solverTimeBudgetNanos;
+        private double approximationEpsilon;
+        private boolean open = true;
+
+        private Edit(Catalog base) {
+            this.base = base;
+            foodItems = base.foodItems;
+            stateDemands = base.stateDemands;
+            boundedQuantities = base.boundedQuantities;
+            weightResolution = base.weightResolution;
+            parallelKnapsack = base.parallelKnapsack;
+            knapsackEngine = base.knapsackEngine;
+            solverTimeBudgetNanos = base.solverTimeBudgetNanos;
+            approximationEpsilon = base.approximationEpsilon;
+        }
+
+        public void loadFoodItem(String line) {
+            try {
+                String[] data = line.split(",");
+                if (data.length < 6) {
+                    System.err.println("Insufficient data for food item: " + line);
+                    return;
+                }
+
+                String name = data[0];
+                double weight = Double.parseDouble(data[4]);
+                if (weight <= 0) {
+                    System.err.println("Invalid weight for food item: " + name);
+                    return;
+                }
+
+                // Other parsing remains the same
+                addFoodItem(new FoodItem(name, Double.parseDouble(data[1]), Integer.parseInt(data[2]),
+                        Double.parseDouble(data[3]), weight, Double.parseDouble(data[5])));
+            } catch (NumberFormatException e) {
+                System.err.println("Error parsing weight or other fields: " + e.getMessage());
+            } catch (Exception e) {
+                System.err.println("Error loading food item: " + e.getMessage());
+            }
+        }
+
+        public void loadStateDemand(String line) {
+            String[] data = line.split(",");
+            String state = data[0];
+            String food = data[1];
+            int demand = Integer.parseInt(data[2]);
+
+            addStateDemand(state, food, demand);
+        }
+
+        public void addFoodItem(FoodItem item) {
+            ensureOpen();
+            if (foodItems == base.foodItems) foodItems = new HashMap<>(foodItems);
+            foodItems.put(item.name, item);
+        }
+
+        public void addStateDemand(String state, String food, int demand) {
+            ensureOpen();
+            if (stateDemands == base.stateDemands) stateDemands = new HashMap<>(stateDemands);
+            Map<String, Integer> demands = stateDemands.get(state);
+            if (copiedDemands.add(state)) {
+                demands = demands == null ? new HashMap<>() : new HashMap<>(demands);
+                stateDemands.put(state, demands);
+            }
+            demands.put(food, demand);
+        }
 
+        public void commit() {
+            ensureOpen();
+            try {
+                catalog.set(new Catalog(base.version + 1, foodItems, stateDemands, boundedQuantities,
+                        weightResolution, parallelKnapsack, knapsackEngine, solverTimeBudgetNanos,
+                        approximationEpsilon));
+            } finally {
+                open = false;
+                editLock.unlock();
+            }
+        }
+
+        // Discards the edit unless it was committed
+        @Override
+        public void close() {
+            if (open) {
+                open = false;
+                editLock.unlock();
+            }
+        }
+
+        private void ensureOpen() {
+            if (!open) throw new IllegalStateException("Edit already committed or closed");
+        }
+    }
+
+    // Immutable so cached results can be shared between planning threads
     static class TransportPlan {
-        String destination;
-        Map<String, Integer> itemQuantities; // food item -> quantity
-        double totalProfit;
-        int estimatedDays;
-        double totalWeight;
+        final String destination;
+        final Map<String, Integer> itemQuantities; // food item -> quantity
+        final double totalProfit;
+        final int estimatedDays;
+        final double totalWeight;
+
+        public TransportPlan(String destination, Map<String, Integer> itemQuantities,
+                             double totalProfit, int estimatedDays, double totalWeight) {
+            this.destination = destination;
+            this.itemQuantities = Collections.unmodifiableMap(new HashMap<>(itemQuantities));
+            this.totalProfit = totalProfit;
+            this.estimatedDays = estimatedDays;
+            this.totalWeight = totalWeight;
+        }
+    }
 
-        public TransportPlan() {
-            this.itemQuantities = new HashMap<>();
-            this.totalProfit = 0.0;
-            this.estimatedDays = 0;
-            this.totalWeight = 0.0;
+    // Everything one optimizeDistribution call produced; nothing per-query lives on the optimizer
+    static class OptimizationResult {
+        final String farmerState;
+        final int vehicleCapacity;
+        final Map<String, TransportPlan> plans; // destination -> plan
+        final CapacityScale capacityScale;
+        final KnapsackSolution knapsackSolution;
+        // Inputs kept for reoptimize: distance per destination and the generated candidates
+        final Map<String, Integer> distances;
+        final CandidateSet candidates;
+        // The versions the plan was computed against
+        final GraphSnapshot graph;
+        final Catalog catalog;
+
+        OptimizationResult(String farmerState, int vehicleCapacity, Map<String, TransportPlan> plans,
+                           CapacityScale capacityScale, KnapsackSolution knapsackSolution,
+                           Map<String, Integer> distances, CandidateSet candidates,
+                           GraphSnapshot graph, Catalog catalog) {
+            this.farmerState = farmerState;
+            this.vehicleCapacity = vehicleCapacity;
+            this.plans = plans;
+            this.capacityScale = capacityScale;
+            this.knapsackSolution = knapsackSolution;
+            this.distances = Collections.unmodifiableMap(distances);
+            this.candidates = candidates;
+            this.graph = graph;
+            this.catalog = catalog;
+        }
+
+        public double totalProfit() {
+            double total = 0;
+            for (TransportPlan plan : plans.values()) {
+                total += plan.totalProfit;
+            }
+            return total;
+        }
+    }
+
+    // Profit-vs-capacity curve for one farmer from a single DP run over the largest capacity.
+    // Every smaller capacity reads the same final row and decision bits.
+    static class CapacitySweep {
+        final String farmerState;
+        final int maxCapacity;
+        final CapacityScale capacityScale;
+        private final KnapsackSolver.Table table;
+        private final Map<String, Integer> distances;
+        private final CandidateSet candidates;
+        private final GraphSnapshot graph;
+        private final Catalog catalog;
+
+        CapacitySweep(String farmerState, int maxCapacity, CapacityScale capacityScale, KnapsackSolver.Table table,
+                      Map<String, Integer> distances, CandidateSet candidates, GraphSnapshot graph, Catalog catalog) {
+            this.farmerState = farmerState;
+            this.maxCapacity = maxCapacity;
+            this.capacityScale = capacityScale;
+            this.table = table;
+            this.distances = distances;
+            this.candidates = candidates;
+            this.graph = graph;
+            this.catalog = catalog;
+        }
+
+        private int cellsFor(int capacity) {
+            if (capacity < 0 || capacity > maxCapacity) {
+                throw new IllegalArgumentException("Capacity outside sweep range 0.." + maxCapacity + ": " + capacity);
+            }
+            return Math.min(table.maxCapacity(), (int) Math.floor(capacity / capacityScale.unitWeight + 1e-9));
+        }
+
+        public double profitAt(int capacity) {
+            return table.bestProfit(cellsFor(capacity));
+        }
+
+        // Best profit for every whole-kg capacity from 0 to maxCapacity
+        public double[] profitCurve() {
+            double[] curve = new double[maxCapacity + 1];
+            for (int capacity = 0; capacity <= maxCapacity; capacity++) {
+                curve[capacity] = profitAt(capacity);
+            }
+            return curve;
+        }
+
+        public OptimizationResult planFor(int capacity) {
+            int[] selected = table.select(cellsFor(capacity));
+            List<KnapsackItem> selectedItems = new ArrayList<>();
+            for (int index : selected) {
+                selectedItems.add(candidates.item(index));
+            }
+            double profit = table.bestProfit(cellsFor(capacity));
+            KnapsackSolution solution = new KnapsackSolution("dp-sweep", selected, profit, profit);
+            return new OptimizationResult(farmerState, capacity, createTransportPlans(selectedItems),
+                    capacityScale, solution, distances, candidates, graph, catalog);
+        }
+    }
+
+    // One truck trip visiting every destination of a plan in turn. Each stop's delivery days, transport
+    // cost and freshness-adjusted profit follow from the distance driven to reach it on this trip.
+    static class Tour {
+        final String farmerState;
+        final List<TourStop> stops; // in visiting order
+        final List<String> path;    // every state driven through, farmer first
+        final int totalDistance;
+        final double totalProfit;
+        final double separateTripsProfit; // the plan's profit with one direct trip per destination
+
+        Tour(String farmerState, List<TourStop> stops, List<String> path, int totalDistance,
+             double totalProfit, double separateTripsProfit) {
+            this.farmerState = farmerState;
+            this.stops = Collections.unmodifiableList(stops);
+            this.path = Collections.unmodifiableList(path);
+            this.totalDistance = totalDistance;
+            this.totalProfit = totalProfit;
+            this.separateTripsProfit = separateTripsProfit;
+        }
+    }
+
+    static class TourStop {
+        final TransportPlan plan; // profit and estimated days as delivered on the tour
+        final int distance;       // km driven from the farmer to this stop
+
+        TourStop(TransportPlan plan, int distance) {
+            this.plan = plan;
+            this.distance = distance;
+        }
+    }
+
+    static class Farmer {
+        final String id;
+        final String state;
+        final int capacity; // kg
+
+        Farmer(String id, String state, int capacity) {
+            this.id = id;
+            this.state = state;
+            this.capacity = capacity;
+        }
+    }
+
+    // Shipments for a whole cooperative, drawing on one shared pool of state demand
+    static class CooperativePlan {
+        final Map<String, Map<String, TransportPlan>> plans; // farmer id -> destination -> plan, farmers in input order
+        final List<Farmer> farmers;
+        final double totalProfit; // of the units actually loaded
+        final double flowProfit;  // of the pooled flow the plan is split from: bounds totalProfit up to cost rounding
+        final int originStates;
+        final int flowPhases;
+        final int pricingRounds;
+
+        CooperativePlan(Map<String, Map<String, TransportPlan>> plans, List<Farmer> farmers, double totalProfit,
+                        double flowProfit, int originStates, int flowPhases, int pricingRounds) {
+            this.plans = Collections.unmodifiableMap(plans);
+            this.farmers = Collections.unmodifiableList(farmers);
+            this.totalProfit = totalProfit;
+            this.flowProfit = flowProfit;
+            this.originStates = originStates;
+            this.flowPhases = flowPhases;
+            this.pricingRounds = pricingRounds;
+        }
+    }
+
+    // Profit distribution of one farmer's plan when price, transport cost and demand are uncertain
+    static class SensitivityReport {
+        final String farmerState;
+        final int vehicleCapacity;
+        final long seed;
+        final double spread; // each price, transport cost and demand drawn within ±spread of its estimate
+        final double baseProfit; // plan with the point estimates
+        final double[] profits; // one per scenario, ascending
+        final Map<String, Map<String, Integer>> selections; // destination -> food -> scenarios that shipped it
+
+        SensitivityReport(String farmerState, int vehicleCapacity, long seed, double spread, double baseProfit,
+                          double[] profits, Map<String, Map<String, Integer>> selections) {
+            this.farmerState = farmerState;
+            this.vehicleCapacity = vehicleCapacity;
+            this.seed = seed;
+            this.spread = spread;
+            this.baseProfit = baseProfit;
+            this.profits = profits;
+            this.selections = Collections.unmodifiableMap(selections);
+        }
+
+        int scenarios() {
+            return profits.length;
+        }
+
+        double mean() {
+            double sum = 0;
+            for (double profit : profits) {
+                sum += profit;
+            }
+            return profits.length == 0 ? 0 : sum / profits.length;
+        }
+
+        // Nearest-rank percentile, p in [0, 1]
+        double percentile(double p) {
+            if (profits.length == 0) return 0;
+            int index = (int) Math.ceil(p * profits.length) - 1;
+            return profits[Math.max(0, Math.min(profits.length - 1, index))];
+        }
+    }
+
+    // Weekly grow-and-ship schedule for one farmer over a season
+    static class SeasonPlan {
+        final String farmerState;
+        final int vehicleCapacity;
+        final int seasonCapacity; // kg the farm can grow over the whole season
+        final int weeks;
+        final double stepWeight;  // kg per season DP cell; every trip load is a multiple
+        final Map<Integer, OptimizationResult> shipments; // week -> trip leaving that week
+        final Map<Integer, Map<String, Integer>> plantings; // week -> food -> units to plant
+        final double totalProfit;
+        final int statesKept;     // non-dominated (week, capacity) states across the DP
+        final int tripTables;     // per-trip knapsack runs, one per distinct set of harvestable crops
+
+        SeasonPlan(String farmerState, int vehicleCapacity, int seasonCapacity, int weeks, double stepWeight,
+                   Map<Integer, OptimizationResult> shipments, Map<Integer, Map<String, Integer>> plantings,
+                   double totalProfit, int statesKept, int tripTables) {
+            this.farmerState = farmerState;
+            this.vehicleCapacity = vehicleCapacity;
+            this.seasonCapacity = seasonCapacity;
+            this.weeks = weeks;
+            this.stepWeight = stepWeight;
+            this.shipments = Collections.unmodifiableMap(shipments);
+            this.plantings = Collections.unmodifiableMap(plantings);
+            this.totalProfit = totalProfit;
+            this.statesKept = statesKept;
+            this.tripTables = tripTables;
+        }
+    }
+
+    // The profit-vs-delivery-time trade-off for one farmer: one plan per point of the Pareto front,
+    // by increasing delivery days and profit
+    static class ParetoFront {
+        final String farmerState;
+        final int vehicleCapacity;
+        final List<ParetoPlan> plans;
+        final CapacityScale capacityScale;
+        final GraphSnapshot graph;
+        final Catalog catalog;
+
+        ParetoFront(String farmerState, int vehicleCapacity, List<ParetoPlan> plans, CapacityScale capacityScale,
+                    GraphSnapshot graph, Catalog catalog) {
+            this.farmerState = farmerState;
+            this.vehicleCapacity = vehicleCapacity;
+            this.plans = Collections.unmodifiableList(plans);
+            this.capacityScale = capacityScale;
+            this.graph = graph;
+            this.catalog = catalog;
+        }
+    }
+
+    // The most profitable plan whose deliveries all arrive within maxDeliveryDays
+    static class ParetoPlan {
+        final int maxDeliveryDays;
+        final double totalProfit;
+        final Map<String, TransportPlan> plans; // destination -> plan
+
+        ParetoPlan(int maxDeliveryDays, double totalProfit, Map<String, TransportPlan> plans) {
+            this.maxDeliveryDays = maxDeliveryDays;
+            this.totalProfit = totalProfit;
+            this.plans = Collections.unmodifiableMap(plans);
         }
     }
 
     static class KnapsackItem {
-        String foodName;
-        String destination;
-        int quantity;
-        double weight;
-        double profit;
-        int deliveryDays;
+        final String foodName;
+        final String destination;
+        final int quantity;
+        final double weight;
+        final double profit;
+        final int deliveryDays;
 
         public KnapsackItem(String foodName, String destination, int quantity,
                             double weight, double profit, int deliveryDays) {
@@ -309,184 +1077,1149 @@ class ProfitOptimizer {
             this.deliveryDays = deliveryDays;
         }
     }
-    public ProfitOptimizer() {
-        foodItems = new HashMap<>();
-        stateDemands = new HashMap<>();
-        optimalPlans = new HashMap<>();
+    // Bumped by every catalog or settings change; part of the plan cache key
+    public long getDataVersion() {
+        return catalog.get().version;
+    }
+
+    // The current catalog; never blocks, and stays consistent however long the caller keeps it
+    Catalog catalog() {
+        return catalog.get();
+    }
+
+    // Starts an edit on the current catalog, waiting for any other edit to finish first
+    public Edit edit() {
+        editLock.lock();
+        return new Edit(catalog.get());
+    }
+
+    // Caches plans per (farmer state, capacity, graph and catalog version); maxEntries 0 disables it
+    public void setPlanCache(int maxEntries, long ttlMillis) {
+        planCache = maxEntries > 0 ? new PlanCache(maxEntries, ttlMillis) : null;
+    }
+
+    public PlanCache getPlanCache() {
+        return planCache;
     }
 
     public void loadFoodItems(String line) {
-        try {
-            String[] data = line.split(",");
-            if (data.length < 6) {
-                System.err.println("Insufficient data for food item: " + line);
-                return;
+        try (Edit edit = edit()) {
+            edit.loadFoodItem(line);
+            edit.commit();
+        }
+    }
+
+
+    public void loadStateDemand(String line) {
+        try (Edit edit = edit()) {
+            edit.loadStateDemand(line);
+            edit.commit();
+        }
+    }
+
+    public void addFoodItem(FoodItem item) {
+        try (Edit edit = edit()) {
+            edit.addFoodItem(item);
+            edit.commit();
+        }
+    }
+
+    public void addStateDemand(String state, String food, int demand) {
+        try (Edit edit = edit()) {
+            edit.addStateDemand(state, food, demand);
+            edit.commit();
+        }
+    }
+
+    private int calculateDeliveryDays(double distance) {
+        return (int) Math.ceil(distance / DAILY_DISTANCE_LIMIT);
+    }
+
+    private double calculateTimeDependentProfit(double baseProfit, int deliveryDays, FoodItem item) {
+        // Apply freshness decay based on delivery time and growing time
+        double freshnessDecay = 1.0 - (deliveryDays * 0.1); // 10% decay per day
+        // Items with longer growing times are more resilient to transport time
+        freshnessDecay *= (1.0 - (item.growingTime / 100.0));
+        return baseProfit * Math.max(0.5, freshnessDecay);
+    }
+
+    public OptimizationResult optimizeDistribution(String farmerState, int vehicleCapacity, StateGraph graph) {
+        long start = Metrics.start();
+        OptimizationResult result = cachedDistribution(farmerState, vehicleCapacity, graph.snapshot(), catalog.get());
+        Metrics.count(Metrics.Counter.PLANS, 1);
+        Metrics.stop(Metrics.Phase.PLAN, start);
+        return result;
+    }
+
+    private OptimizationResult cachedDistribution(String farmerState, int vehicleCapacity,
+                                                  GraphSnapshot graph, Catalog catalog) {
+        PlanCache cache = planCache;
+        if (cache == null) {
+            return computeDistribution(farmerState, vehicleCapacity, graph, catalog);
+        }
+
+        // The plan is computed from exactly the versions in its key
+        PlanCache.Key key = new PlanCache.Key(farmerState, vehicleCapacity, graph.version, catalog.version);
+        OptimizationResult result = cache.get(key);
+        if (result == null) {
+            result = computeDistribution(farmerState, vehicleCapacity, graph, catalog);
+            cache.put(key, result);
+        }
+        return result;
+    }
+
+    private OptimizationResult computeDistribution(String farmerState, int vehicleCapacity,
+                                                   GraphSnapshot graph, Catalog catalog) {
+        Map<String, Integer> distances = new HashMap<>();
+        CandidateSet candidates = buildCandidates(farmerState, vehicleCapacity, graph, catalog, distances);
+
+        // Solve knapsack problem
+        return solveKnapsack(farmerState, vehicleCapacity, distances, candidates, graph, catalog);
+    }
+
+    // Candidate generation on its own (also used by the benchmarks); records each destination's distance
+    CandidateSet buildCandidates(String farmerState, int vehicleCapacity, StateGraph graph,
+                                 Map<String, Integer> distances) {
+        return buildCandidates(farmerState, vehicleCapacity, graph.snapshot(), catalog.get(), distances);
+    }
+
+    private CandidateSet buildCandidates(String farmerState, int vehicleCapacity, GraphSnapshot graph,
+                                         Catalog catalog, Map<String, Integer> distances) {
+        ShortestPathTree paths = graph.getShortestPathTree(farmerState);
+        long start = Metrics.start();
+        CandidateSet candidates = generateCandidates(catalog, farmerState, paths, vehicleCapacity,
+                catalog.boundedQuantities, MAX_DELIVERY_DAYS, distances);
+        Metrics.count(Metrics.Counter.CANDIDATES, candidates.size());
+        Metrics.stop(Metrics.Phase.CANDIDATES, start);
+        return candidates;
+    }
+
+    // Re-plans after the route graph changed (e.g. a route was added), reusing the previous result's
+    // candidates for every destination whose shortest distance is unchanged. When no distance
+    // changed the previous result is returned without running the DP. The catalog stays the one the
+    // previous result was planned with.
+    public OptimizationResult reoptimize(OptimizationResult previous, StateGraph graph) {
+        GraphSnapshot snapshot = graph.snapshot();
+        ShortestPathTree paths = snapshot.getShortestPathTree(previous.farmerState);
+        Map<String, Integer> distances = new HashMap<>();
+        CandidateSet.Builder candidates = new CandidateSet.Builder(previous.catalog.arrays());
+        boolean changed = false;
+
+        for (int group = 0; group < previous.candidates.destinationCount(); group++) {
+            String destState = previous.candidates.destination(group);
+            int distance = paths.distanceTo(destState);
+            distances.put(destState, distance);
+
+            if (distance == previous.distances.get(destState)) {
+                candidates.addDestination(previous.candidates, group);
+            } else {
+                // Delivery days and transport cost both follow from the distance
+                appendCandidates(candidates, candidates.catalog().stateIndex(destState), distance,
+                        previous.vehicleCapacity, previous.catalog.boundedQuantities, MAX_DELIVERY_DAYS);
+                changed = true;
             }
+        }
 
-            String name = data[0];
-            double weight = Double.parseDouble(data[4]);
-            if (weight <= 0) {
-                System.err.println("Invalid weight for food item: " + name);
-                return;
+        if (!changed) return previous;
+        return solveKnapsack(previous.farmerState, previous.vehicleCapacity, distances, candidates.build(),
+                snapshot, previous.catalog);
+    }
+
+    // One shortest-path tree and one DP over maxCapacity answer every smaller truck size.
+    // Candidates are always split into bounded-quantity lots so each capacity gets its own
+    // quantities rather than lots sized for the largest truck.
+    public CapacitySweep sweepCapacities(String farmerState, int maxCapacity, StateGraph graph) {
+        return sweepCapacities(farmerState, maxCapacity, graph.snapshot(), catalog.get());
+    }
+
+    private CapacitySweep sweepCapacities(String farmerState, int maxCapacity, GraphSnapshot snapshot,
+                                          Catalog catalog) {
+        ShortestPathTree paths = snapshot.getShortestPathTree(farmerState);
+        Map<String, Integer> distances = new HashMap<>();
+        CandidateSet candidates = generateCandidates(catalog, farmerState, paths, maxCapacity, true,
+                MAX_DELIVERY_DAYS, distances);
+
+        CapacityScale scale = CapacityScale.discretize(candidates.weights(), maxCapacity, catalog.weightResolution);
+        KnapsackSolver.Table table = KnapsackSolver.solveTable(scale.itemUnits, candidates.profits(),
+                scale.capacityUnits, catalog.parallelKnapsack);
+        return new CapacitySweep(farmerState, maxCapacity, scale, table, distances, candidates, snapshot, catalog);
+    }
+
+    // Candidates for every demand state except the farmer's own, one destination group each in
+    // catalog order; records each destination's distance
+    private CandidateSet generateCandidates(Catalog catalog, String farmerState, ShortestPathTree paths,
+                                            int vehicleCapacity, boolean boundedQuantities, int maxDays,
+                                            Map<String, Integer> distances) {
+        CatalogArrays arrays = catalog.arrays();
+        CandidateSet.Builder candidates = new CandidateSet.Builder(arrays);
+        for (int state = 0; state < arrays.states.length; state++) {
+            String destState = arrays.states[state];
+            if (destState.equals(farmerState)) continue;
+
+            int distance = paths.distanceTo(destState);
+            distances.put(destState, distance);
+            appendCandidates(candidates, state, distance, vehicleCapacity, boundedQuantities, maxDays);
+        }
+        return candidates.build();
+    }
+
+    // Adds one destination group. Each pass is a straight loop over the state's demand cells, which
+    // sit next to each other in every column, with no lookups or allocation, so the JIT can unroll
+    // and vectorize it. The arithmetic is createKnapsackItem's, operation for operation, so the
+    // profits come out bit for bit the same.
+    private void appendCandidates(CandidateSet.Builder candidates, int state, int distance, int vehicleCapacity,
+                                  boolean boundedQuantities, int maxDays) {
+        candidates.startDestination(state);
+        int deliveryDays = calculateDeliveryDays(distance);
+
+        // Skip if delivery would take too long
+        if (deliveryDays > maxDays || distance == CompactGraph.UNREACHABLE) return;
+
+        CatalogArrays arrays = candidates.catalog();
+        int from = arrays.rowStart[state];
+        int cells = arrays.rowStart[state + 1] - from;
+        int[] units = candidates.unitsScratch;
+        double[] profits = candidates.profitScratch;
+        double decay = 1.0 - (deliveryDays * 0.1); // 10% freshness lost per day
+
+        // Maximum quantity: the demand, capped by what fits in the vehicle
+        for (int i = 0; i < cells; i++) {
+            units[i] = Math.min(arrays.demand[from + i], (int) (vehicleCapacity / arrays.weight[from + i]));
+        }
+
+        if (!boundedQuantities) {
+            for (int i = 0; i < cells; i++) {
+                profits[i] = candidateProfit(arrays, from + i, distance, decay, units[i]);
+            }
+            for (int i = 0; i < cells; i++) {
+                if (units[i] > 0) {
+                    candidates.add(arrays.food[from + i], units[i], arrays.weight[from + i] * units[i],
+                            profits[i], deliveryDays);
+                }
+            }
+            return;
+        }
+
+        // Binary splitting: lots of 1, 2, 4, ... plus a remainder can sum to every quantity
+        // in [0, maxQuantity], so the 0/1 DP picks partial quantities with only log(maxQuantity) items
+        for (int i = 0; i < cells; i++) {
+            profits[i] = candidateProfit(arrays, from + i, distance, decay, 1);
+        }
+        for (int i = 0; i < cells; i++) {
+            // Profit is linear in quantity, so an unprofitable unit means no chunk is worth taking
+            if (units[i] <= 0 || profits[i] <= 0) continue;
+            int remaining = units[i];
+            for (int chunk = 1; remaining > 0; chunk <<= 1) {
+                int quantity = Math.min(chunk, remaining);
+                candidates.add(arrays.food[from + i], quantity, arrays.weight[from + i] * quantity,
+                        candidateProfit(arrays, from + i, distance, decay, quantity), deliveryDays);
+                remaining -= quantity;
+            }
+        }
+    }
+
+    // calculateBaseProfit then calculateTimeDependentProfit, for one demand cell
+    private static double candidateProfit(CatalogArrays arrays, int cell, int distance, double decay, int quantity) {
+        double baseProfit = arrays.price[cell] * quantity - arrays.productionCost[cell] * quantity
+                - arrays.transportCostPerMile[cell] * distance * quantity * arrays.weight[cell];
+        return baseProfit * Math.max(0.5, decay * arrays.resilience[cell]);
+    }
+
+    public void setBoundedQuantities(boolean boundedQuantities) {
+        try (Edit edit = edit()) {
+            edit.boundedQuantities = boundedQuantities;
+            edit.commit();
+        }
+    }
+
+    public void setWeightResolution(double weightResolution) {
+        if (weightResolution <= 0) {
+            throw new IllegalArgumentException("Weight resolution must be positive: " + weightResolution);
+        }
+        try (Edit edit = edit()) {
+            edit.weightResolution = weightResolution;
+            edit.commit();
+        }
+    }
+
+    public void setParallelKnapsack(boolean parallelKnapsack) {
+        try (Edit edit = edit()) {
+            edit.parallelKnapsack = parallelKnapsack;
+            edit.commit();
+        }
+    }
+
+    // Forces one engine; pass null to let the optimizer pick from n x capacity and the time budget
+    public void setKnapsackEngine(KnapsackEngine knapsackEngine) {
+        try (Edit edit = edit()) {
+            edit.knapsackEngine = knapsackEngine;
+            edit.commit();
+        }
+    }
+
+    public void setSolverTimeBudget(long millis) {
+        try (Edit edit = edit()) {
+            edit.solverTimeBudgetNanos = millis * 1_000_000L;
+            edit.commit();
+        }
+    }
+
+    public void setApproximationEpsilon(double approximationEpsilon) {
+        try (Edit edit = edit()) {
+            edit.approximationEpsilon = approximationEpsilon;
+            edit.commit();
+        }
+    }
+
+    private KnapsackItem createKnapsackItem(Catalog catalog, FoodItem food, String destState, int quantity,
+                                            int distance, int deliveryDays) {
+        double baseProfit = calculateBaseProfit(catalog, food.name, distance, quantity);
+        double timeAdjustedProfit = calculateTimeDependentProfit(baseProfit, deliveryDays, food);
+
+        return new KnapsackItem(
+                food.name,
+                destState,
+                quantity,
+                food.weight * quantity,
+                timeAdjustedProfit,
+                deliveryDays
+        );
+    }
+
+    private double calculateBaseProfit(Catalog catalog, String foodName, int distance, int quantity) {
+        FoodItem food = catalog.foodItems.get(foodName);
+        if (food == null) return 0;
+
+        if (distance == Integer.MAX_VALUE) return 0;
+
+        double productionCost = food.productionCost * quantity;
+        double transportCost = food.transportCostPerMile * distance * quantity * food.weight;
+        double revenue = food.pricePerUnit * quantity;
+
+        return revenue - productionCost - transportCost;
+    }
+
+    private OptimizationResult solveKnapsack(String farmerState, int capacity, Map<String, Integer> distances,
+                                             CandidateSet candidates, GraphSnapshot graph, Catalog catalog) {
+        long start = Metrics.start();
+        CapacityScale scale = CapacityScale.discretize(candidates.weights(), capacity, catalog.weightResolution);
+
+        KnapsackEngine engine = catalog.knapsackEngine != null ? catalog.knapsackEngine
+                : new AutoKnapsackEngine(catalog.solverTimeBudgetNanos, catalog.parallelKnapsack,
+                        catalog.approximationEpsilon);
+        KnapsackSolution solution = engine.solve(scale.itemUnits, candidates.profits(), scale.capacityUnits);
+        Metrics.stop(Metrics.Phase.KNAPSACK, start);
+
+        List<KnapsackItem> selectedItems = new ArrayList<>();
+        for (int index : solution.selected) {
+            selectedItems.add(candidates.item(index));
+        }
+
+        // Create transport plans from selected items
+        return new OptimizationResult(farmerState, capacity, createTransportPlans(selectedItems),
+                scale, solution, distances, candidates, graph, catalog);
+    }
+
+    private static Map<String, TransportPlan> createTransportPlans(List<KnapsackItem> selectedItems) {
+        Map<String, List<KnapsackItem>> byDestination = new LinkedHashMap<>();
+        for (KnapsackItem item : selectedItems) {
+            byDestination.computeIfAbsent(item.destination, k -> new ArrayList<>()).add(item);
+        }
+
+        Map<String, TransportPlan> plans = new HashMap<>();
+        for (Map.Entry<String, List<KnapsackItem>> entry : byDestination.entrySet()) {
+            Map<String, Integer> itemQuantities = new HashMap<>();
+            double totalProfit = 0.0;
+            int estimatedDays = 0;
+            double totalWeight = 0.0;
+
+            for (KnapsackItem item : entry.getValue()) {
+                itemQuantities.merge(item.foodName, item.quantity, Integer::sum);
+                totalProfit += item.profit;
+                estimatedDays = Math.max(estimatedDays, item.deliveryDays);
+                totalWeight += item.weight;
+            }
+            plans.put(entry.getKey(), new TransportPlan(entry.getKey(), itemQuantities,
+                    totalProfit, estimatedDays, totalWeight));
+        }
+
+        return Collections.unmodifiableMap(plans);
+    }
+
+    // Splits the shared (state, food) demand among many farmers as a transportation problem, so the
+    // cooperative as a whole never ships more than a state asks for. Flow is measured in weight
+    // steps (the catalog's weight resolution): source -> farmer's state (pooled truck capacity) ->
+    // (state, food) demand (per-step cost = minus the freshness-adjusted profit of the direct trip)
+    // -> sink (demand weight). Farmers in the same state share every cost, so they are pooled into
+    // one supply node and only split up afterwards; the network grows with the number of farmer
+    // states, not farmers. Successive shortest paths stop once no shipment adds profit.
+    public CooperativePlan planCooperative(List<Farmer> farmers, StateGraph graph) {
+        long start = Metrics.start();
+        GraphSnapshot snapshot = graph.snapshot();
+        Catalog catalog = this.catalog.get();
+        double resolution = catalog.weightResolution;
+
+        Map<String, List<Farmer>> byOrigin = new LinkedHashMap<>();
+        Set<String> ids = new HashSet<>();
+        for (Farmer farmer : farmers) {
+            if (!snapshot.hasState(farmer.state)) {
+                throw new IllegalArgumentException("Invalid state for farmer " + farmer.id + ": " + farmer.state);
+            }
+            if (!ids.add(farmer.id)) {
+                throw new IllegalArgumentException("Duplicate farmer id: " + farmer.id);
+            }
+            byOrigin.computeIfAbsent(farmer.state, k -> new ArrayList<>()).add(farmer);
+        }
+        List<String> origins = new ArrayList<>(byOrigin.keySet());
+        origins.parallelStream().forEach(snapshot::getShortestPathTree);
+
+        List<String> demandStates = new ArrayList<>();
+        List<FoodItem> demandFoods = new ArrayList<>();
+        List<Integer> demandUnits = new ArrayList<>();
+        for (Map.Entry<String, Map<String, Integer>> state : catalog.stateDemands.entrySet()) {
+            for (Map.Entry<String, Integer> demand : state.getValue().entrySet()) {
+                FoodItem food = catalog.foodItems.get(demand.getKey());
+                if (food == null || demand.getValue() <= 0) continue;
+                demandStates.add(state.getKey());
+                demandFoods.add(food);
+                demandUnits.add(demand.getValue());
+            }
+        }
+
+        int source = 0;
+        int sink = 1;
+        int firstDemand = 2 + origins.size();
+        long[] demandSteps = new long[demandStates.size()];
+        for (int d = 0; d < demandSteps.length; d++) {
+            demandSteps[d] = (long) Math.floor(demandUnits.get(d) * demandFoods.get(d).weight / resolution + 1e-9);
+        }
+
+        // Every profitable market for every farmer state, grouped by origin: [arcStart[o], arcStart[o + 1])
+        long[] supply = new long[origins.size()];
+        int[] arcStart = new int[origins.size() + 1];
+        int[] arcDemand = new int[16];
+        long[] arcCost = new long[16];
+        int[] arcDays = new int[16];
+        double[] arcUnitProfit = new double[16];
+        int arcs = 0;
+        for (int o = 0; o < origins.size(); o++) {
+            String origin = origins.get(o);
+            for (Farmer farmer : byOrigin.get(origin)) {
+                supply[o] += (long) Math.floor(farmer.capacity / resolution + 1e-9);
+            }
+
+            arcStart[o] = arcs;
+            ShortestPathTree paths = snapshot.getShortestPathTree(origin);
+            for (int d = 0; d < demandStates.size(); d++) {
+                String destState = demandStates.get(d);
+                if (destState.equals(origin)) continue;
+                int distance = paths.distanceTo(destState);
+                if (distance == CompactGraph.UNREACHABLE) continue;
+                int deliveryDays = calculateDeliveryDays(distance);
+                if (deliveryDays > MAX_DELIVERY_DAYS) continue;
+
+                FoodItem food = demandFoods.get(d);
+                double unitProfit = calculateTimeDependentProfit(
+                        calculateBaseProfit(catalog, food.name, distance, 1), deliveryDays, food);
+                long cost = -Math.round(unitProfit * resolution / food.weight * FLOW_COST_SCALE);
+                if (cost >= 0) continue;
+
+                if (arcs == arcDemand.length) {
+                    arcDemand = Arrays.copyOf(arcDemand, arcs * 2);
+                    arcCost = Arrays.copyOf(arcCost, arcs * 2);
+                    arcDays = Arrays.copyOf(arcDays, arcs * 2);
+                    arcUnitProfit = Arrays.copyOf(arcUnitProfit, arcs * 2);
+                }
+                arcDemand[arcs] = d;
+                arcCost[arcs] = cost;
+                arcDays[arcs] = deliveryDays;
+                arcUnitProfit[arcs] = unitProfit;
+                arcs++;
+            }
+        }
+        arcStart[origins.size()] = arcs;
+
+        // Origins x markets arcs make every shortest-path phase slow, so solve over each origin's
+        // cheapest few markets first, then add the few markets per origin the final potentials
+        // price furthest below zero and solve again. Once none is below zero the potentials prove
+        // the pooled flow optimal for the full network; it still ships fractional units and
+        // ignores how the pool splits into trucks, so it only bounds the plan built from it.
+        boolean[] active = new boolean[arcs];
+        for (int o = 0; o < origins.size(); o++) {
+            activateLowest(arcCost, arcStart[o], arcStart[o + 1], active);
+        }
+        long[] reducedCost = new long[arcs];
+        int[] arcEdge = new int[arcs];
+        MinCostFlow network;
+        int flowPhases = 0;
+        int rounds = 0;
+        while (true) {
+            rounds++;
+            network = new MinCostFlow(firstDemand + demandStates.size());
+            long totalSupply = 0;
+            for (int o = 0; o < origins.size(); o++) {
+                network.addEdge(source, 2 + o, supply[o], 0);
+                totalSupply += supply[o];
+            }
+            for (int d = 0; d < demandSteps.length; d++) {
+                network.addEdge(firstDemand + d, sink, demandSteps[d], 0);
+            }
+            // Leaving capacity unused costs nothing; this keeps the sink reachable, so the
+            // final potentials are defined for every node
+            network.addEdge(source, sink, totalSupply, 0);
+            Arrays.fill(arcEdge, -1);
+            for (int o = 0; o < origins.size(); o++) {
+                for (int a = arcStart[o]; a < arcStart[o + 1]; a++) {
+                    if (active[a]) {
+                        arcEdge[a] = network.addEdge(2 + o, firstDemand + arcDemand[a], supply[o], arcCost[a]);
+                    }
+                }
+            }
+            network.minimizeCost(source, sink);
+            flowPhases += network.phases();
+
+            boolean added = false;
+            for (int o = 0; o < origins.size(); o++) {
+                for (int a = arcStart[o]; a < arcStart[o + 1]; a++) {
+                    reducedCost[a] = network.reducedCost(2 + o, firstDemand + arcDemand[a], arcCost[a]);
+                }
+                added |= activateLowest(reducedCost, arcStart[o], arcStart[o + 1], active);
+            }
+            if (!added) break;
+        }
+
+        // Whole units can't always be split the way the pooled flow ships them (two 15 kg trucks
+        // can't carry three 10 kg units), so hand each origin's shipments out heaviest food first,
+        // first fit over the state's farmers, then offer every farmer's leftover room to the
+        // demand still open on their most profitable markets per kg. Only what is actually loaded
+        // is reported; the flow's own profit bounds it, up to the rounding of per-step costs.
+        double[] arcWeight = new double[arcs];
+        double[] arcProfitPerKg = new double[arcs];
+        for (int a = 0; a < arcs; a++) {
+            arcWeight[a] = demandFoods.get(arcDemand[a]).weight;
+            arcProfitPerKg[a] = arcUnitProfit[a] / arcWeight[a];
+        }
+        int[] placed = new int[demandStates.size()];
+        List<Farmer> pooled = new ArrayList<>(farmers.size());
+        int[] farmerStart = new int[origins.size() + 1];
+        for (int o = 0; o < origins.size(); o++) {
+            farmerStart[o] = pooled.size();
+            pooled.addAll(byOrigin.get(origins.get(o)));
+        }
+        farmerStart[origins.size()] = pooled.size();
+        double[] remainingKg = new double[pooled.size()];
+        List<Map<String, Map<String, Integer>>> quantities = new ArrayList<>(pooled.size());
+        List<Map<String, double[]>> totals = new ArrayList<>(pooled.size()); // destination -> {profit, days, kg}
+        for (int f = 0; f < pooled.size(); f++) {
+            remainingKg[f] = pooled.get(f).capacity;
+            quantities.add(new LinkedHashMap<>());
+            totals.add(new LinkedHashMap<>());
+        }
+
+        double flowProfit = 0;
+        for (int o = 0; o < origins.size(); o++) {
+            List<Integer> shipped = new ArrayList<>();
+            for (int a = arcStart[o]; a < arcStart[o + 1]; a++) {
+                if (arcEdge[a] >= 0 && network.flow(arcEdge[a]) > 0) shipped.add(a);
+            }
+            shipped.sort((x, y) -> Double.compare(arcWeight[y], arcWeight[x]));
+            for (int a : shipped) {
+                long steps = network.flow(arcEdge[a]);
+                flowProfit -= steps * arcCost[a] / FLOW_COST_SCALE;
+                int units = (int) Math.min(demandUnits.get(arcDemand[a]) - placed[arcDemand[a]],
+                        (long) Math.floor(steps * resolution / arcWeight[a] + 1e-9));
+                for (int f = farmerStart[o]; f < farmerStart[o + 1] && units > 0; f++) {
+                    units -= load(a, units, f, remainingKg, quantities, totals, placed,
+                            arcDemand, arcUnitProfit, arcDays, demandStates, demandFoods);
+                }
+            }
+        }
+
+        for (int o = 0; o < origins.size(); o++) {
+            List<Integer> markets = new ArrayList<>(arcStart[o + 1] - arcStart[o]);
+            for (int a = arcStart[o]; a < arcStart[o + 1]; a++) {
+                markets.add(a);
+            }
+            markets.sort((x, y) -> Double.compare(arcProfitPerKg[y], arcProfitPerKg[x]));
+            for (int f = farmerStart[o]; f < farmerStart[o + 1]; f++) {
+                for (int a : markets) {
+                    load(a, demandUnits.get(arcDemand[a]) - placed[arcDemand[a]], f, remainingKg, quantities,
+                            totals, placed, arcDemand, arcUnitProfit, arcDays, demandStates, demandFoods);
+                }
+            }
+        }
+
+        Map<String, Map<String, TransportPlan>> plans = new HashMap<>();
+        double totalProfit = 0;
+        for (int f = 0; f < pooled.size(); f++) {
+            Map<String, TransportPlan> farmerPlans = new LinkedHashMap<>();
+            for (Map.Entry<String, Map<String, Integer>> entry : quantities.get(f).entrySet()) {
+                double[] total = totals.get(f).get(entry.getKey());
+                farmerPlans.put(entry.getKey(), new TransportPlan(entry.getKey(), entry.getValue(),
+                        total[0], (int) total[1], total[2]));
+                totalProfit += total[0];
             }
+            plans.put(pooled.get(f).id, Collections.unmodifiableMap(farmerPlans));
+        }
+
+        // Back to input order
+        Map<String, Map<String, TransportPlan>> ordered = new LinkedHashMap<>();
+        for (Farmer farmer : farmers) {
+            ordered.put(farmer.id, plans.get(farmer.id));
+        }
+        Metrics.stop(Metrics.Phase.COOPERATIVE, start);
+        return new CooperativePlan(ordered, new ArrayList<>(farmers), totalProfit, flowProfit, origins.size(),
+                flowPhases, rounds);
+    }
+
+    // Loads up to the given units of arc a's food onto farmer f, as many as fit; returns how many
+    private static int load(int a, int units, int f, double[] remainingKg,
+                            List<Map<String, Map<String, Integer>>> quantities, List<Map<String, double[]>> totals,
+                            int[] placed, int[] arcDemand, double[] arcUnitProfit, int[] arcDays,
+                            List<String> demandStates, List<FoodItem> demandFoods) {
+        int d = arcDemand[a];
+        FoodItem food = demandFoods.get(d);
+        int take = Math.min(units, (int) Math.floor(remainingKg[f] / food.weight + 1e-9));
+        if (take <= 0) return 0;
+        String destState = demandStates.get(d);
+        remainingKg[f] -= take * food.weight;
+        placed[d] += take;
+        quantities.get(f).computeIfAbsent(destState, k -> new HashMap<>()).merge(food.name, take, Integer::sum);
+        double[] total = totals.get(f).computeIfAbsent(destState, k -> new double[3]);
+        total[0] += take * arcUnitProfit[a];
+        total[1] = Math.max(total[1], arcDays[a]);
+        total[2] += take * food.weight;
+        return take;
+    }
+
+    // Activates the MARKETS_PER_ORIGIN inactive arcs in [from, to) with the lowest negative cost
+    // (ties included); returns whether any was activated
+    private static boolean activateLowest(long[] cost, int from, int to, boolean[] active) {
+        long[] candidates = new long[to - from];
+        int count = 0;
+        for (int a = from; a < to; a++) {
+            if (!active[a] && cost[a] < 0) candidates[count++] = cost[a];
+        }
+        if (count == 0) return false;
+        long threshold = 0;
+        if (count > MARKETS_PER_ORIGIN) {
+            Arrays.sort(candidates, 0, count);
+            threshold = candidates[MARKETS_PER_ORIGIN - 1] + 1;
+        }
+        for (int a = from; a < to; a++) {
+            if (!active[a] && cost[a] < threshold) active[a] = true;
+        }
+        return true;
+    }
+
+    public void printCooperativePlan(CooperativePlan plan, PrintWriter outputWriter) {
+        outputWriter.println("\nCooperative Distribution Plan:");
+        outputWriter.println("=============================================");
+        for (Farmer farmer : plan.farmers) {
+            Map<String, TransportPlan> farmerPlans = plan.plans.get(farmer.id);
+            double profit = 0;
+            double weight = 0;
+            for (TransportPlan transport : farmerPlans.values()) {
+                profit += transport.totalProfit;
+                weight += transport.totalWeight;
+            }
+            outputWriter.printf("\nFarmer %s from %s: %.2f of %d kg loaded, ₹%.2f\n",
+                    farmer.id, farmer.state, weight, farmer.capacity, profit);
+            for (TransportPlan transport : farmerPlans.values()) {
+                StringBuilder items = new StringBuilder();
+                for (Map.Entry<String, Integer> item : transport.itemQuantities.entrySet()) {
+                    if (items.length() > 0) items.append(", ");
+                    items.append(item.getKey()).append(' ').append(item.getValue()).append(" units");
+                }
+                outputWriter.printf("- %s (%d days, %.2f kg): %s, ₹%.2f\n", transport.destination,
+                        transport.estimatedDays, transport.totalWeight, items, transport.totalProfit);
+            }
+        }
+        outputWriter.printf("\nTotal Expected Profit: ₹%.2f across %d farmers\n", plan.totalProfit, plan.farmers.size());
+        outputWriter.flush();
+    }
+
+    // Monte Carlo sensitivity of one farmer's plan. Every scenario scales each food's price and
+    // transport cost and each state's demand by its own uniform factor in [1 - spread, 1 + spread],
+    // then re-solves. Scenarios share the graph snapshot and one set of shortest distances; only
+    // the catalog and knapsack items are rebuilt. Each scenario draws from its own SplittableRandom,
+    // split from the seed in scenario order before any runs, so results do not depend on threads.
+    public SensitivityReport analyzeSensitivity(String farmerState, int vehicleCapacity, StateGraph graph,
+                                                int scenarios, double spread, long seed, int threads)
+            throws InterruptedException {
+        if (scenarios <= 0 || spread < 0 || spread >= 1 || threads <= 0) {
+            throw new IllegalArgumentException("Need scenarios > 0, 0 <= spread < 1 and threads > 0, got "
+                    + scenarios + " scenarios, spread " + spread + ", " + threads + " threads");
+        }
+        long start = Metrics.start();
+        GraphSnapshot snapshot = graph.snapshot();
+        Catalog catalog = this.catalog.get();
+        ShortestPathTree paths = snapshot.getShortestPathTree(farmerState);
+        Map<String, Integer> distances = new LinkedHashMap<>();
+        for (String destState : catalog.stateDemands.keySet()) {
+            if (!destState.equals(farmerState)) {
+                distances.put(destState, paths.distanceTo(destState));
+            }
+        }
+        double baseProfit = solveScenario(farmerState, vehicleCapacity, distances, snapshot, catalog).totalProfit();
+
+        SplittableRandom root = new SplittableRandom(seed);
+        List<Callable<OptimizationResult>> tasks = new ArrayList<>();
+        for (int i = 0; i < scenarios; i++) {
+            SplittableRandom random = root.split();
+            tasks.add(() -> solveScenario(farmerState, vehicleCapacity, distances, snapshot,
+                    perturb(catalog, random, spread)));
+        }
 
-            // Other parsing remains the same
-            foodItems.put(name, new FoodItem(name, Double.parseDouble(data[1]), Integer.parseInt(data[2]),
-                    Double.parseDouble(data[3]), weight, Double.parseDouble(data[5])));
-        } catch (NumberFormatException e) {
-            System.err.println("Error parsing weight or other fields: " + e.getMessage());
-        } catch (Exception e) {
-            System.err.println("Error loading food item: " + e.getMessage());
+        double[] profits = new double[scenarios];
+        Map<String, Map<String, Integer>> selections = new TreeMap<>();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<OptimizationResult>> futures = executor.invokeAll(tasks);
+            for (int i = 0; i < scenarios; i++) {
+                OptimizationResult result = futures.get(i).get();
+                profits[i] = result.totalProfit();
+                for (TransportPlan plan : result.plans.values()) {
+                    Map<String, Integer> foods = selections.computeIfAbsent(plan.destination, k -> new TreeMap<>());
+                    for (String food : plan.itemQuantities.keySet()) {
+                        foods.merge(food, 1, Integer::sum);
+                    }
+                }
+            }
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Scenario failed", e.getCause());
+        } finally {
+            executor.shutdownNow();
         }
+        Arrays.sort(profits);
+        Metrics.stop(Metrics.Phase.SENSITIVITY, start);
+        return new SensitivityReport(farmerState, vehicleCapacity, seed, spread, baseProfit, profits, selections);
     }
 
+    private OptimizationResult solveScenario(String farmerState, int vehicleCapacity, Map<String, Integer> distances,
+                                             GraphSnapshot graph, Catalog catalog) {
+        CandidateSet.Builder candidates = new CandidateSet.Builder(catalog.arrays());
+        for (Map.Entry<String, Integer> destination : distances.entrySet()) {
+            appendCandidates(candidates, candidates.catalog().stateIndex(destination.getKey()), destination.getValue(),
+                    vehicleCapacity, catalog.boundedQuantities, MAX_DELIVERY_DAYS);
+        }
+        return solveKnapsack(farmerState, vehicleCapacity, distances, candidates.build(), graph, catalog);
+    }
 
-    public void loadStateDemand(String line) {
-        String[] data = line.split(",");
-        String state = data[0];
-        String food = data[1];
-        int demand = Integer.parseInt(data[2]);
-
-        stateDemands.putIfAbsent(state, new HashMap<>());
-        stateDemands.get(state).put(food, demand);
+    // A private catalog with perturbed copies of every food and demand; the DP runs single-threaded
+    // since scenarios already keep every core busy
+    private static Catalog perturb(Catalog catalog, SplittableRandom random, double spread) {
+        Map<String, FoodItem> foods = new HashMap<>();
+        for (FoodItem food : catalog.foodItems.values()) {
+            foods.put(food.name, new FoodItem(food.name, food.pricePerUnit * factor(random, spread),
+                    food.growingTime, food.productionCost, food.weight,
+                    food.transportCostPerMile * factor(random, spread)));
+        }
+        Map<String, Map<String, Integer>> demands = new HashMap<>();
+        for (Map.Entry<String, Map<String, Integer>> state : catalog.stateDemands.entrySet()) {
+            Map<String, Integer> foodDemands = new HashMap<>();
+            for (Map.Entry<String, Integer> demand : state.getValue().entrySet()) {
+                foodDemands.put(demand.getKey(), (int) Math.round(demand.getValue() * factor(random, spread)));
+            }
+            demands.put(state.getKey(), foodDemands);
+        }
+        return new Catalog(catalog.version, foods, demands, catalog.boundedQuantities, catalog.weightResolution,
+                false, catalog.knapsackEngine, catalog.solverTimeBudgetNanos, catalog.approximationEpsilon);
     }
 
-    private int calculateDeliveryDays(double distance) {
-        return (int) Math.ceil(distance / DAILY_DISTANCE_LIMIT);
+    private static double factor(SplittableRandom random, double spread) {
+        return 1.0 + spread * (2.0 * random.nextDouble() - 1.0);
     }
 
-    private double calculateTimeDependentProfit(double baseProfit, int deliveryDays, FoodItem item) {
-        // Apply freshness decay based on delivery time and growing time
-        double freshnessDecay = 1.0 - (deliveryDays * 0.1); // 10% decay per day
-        // Items with longer growing times are more resilient to transport time
-        freshnessDecay *= (1.0 - (item.growingTime / 100.0));
-        return baseProfit * Math.max(0.5, freshnessDecay);
+    public void printSensitivity(SensitivityReport report, PrintWriter outputWriter) {
+        outputWriter.println("\nSensitivity Analysis:");
+        outputWriter.println("=============================================");
+        outputWriter.printf("Farmer in %s, %d kg truck: %d scenarios, ±%.0f%% price/transport/demand, seed %d\n",
+                report.farmerState, report.vehicleCapacity, report.scenarios(), report.spread * 100, report.seed);
+        outputWriter.printf("Point-estimate profit: ₹%.2f\n", report.baseProfit);
+        outputWriter.printf("Mean profit: ₹%.2f\n", report.mean());
+        outputWriter.printf("Percentiles: p5 ₹%.2f, p25 ₹%.2f, p50 ₹%.2f, p75 ₹%.2f, p95 ₹%.2f\n",
+                report.percentile(0.05), report.percentile(0.25), report.percentile(0.50),
+                report.percentile(0.75), report.percentile(0.95));
+        outputWriter.printf("Range: ₹%.2f to ₹%.2f\n", report.percentile(0), report.percentile(1));
+
+        outputWriter.println("\nSelection frequency (destination / food):");
+        for (Map.Entry<String, Map<String, Integer>> destination : report.selections.entrySet()) {
+            for (Map.Entry<String, Integer> food : destination.getValue().entrySet()) {
+                outputWriter.printf("- %s / %s: %.1f%%\n", destination.getKey(), food.getKey(),
+                        100.0 * food.getValue() / report.scenarios());
+            }
+        }
+        outputWriter.flush();
     }
 
-    public void optimizeDistribution(String farmerState, int vehicleCapacity, StateGraph graph) {
-        optimalPlans.clear();
-        List<KnapsackItem> allPossibleItems = new ArrayList<>();
+    // Schedules a season of weekly truck trips under a total growing capacity. A crop can only be
+    // shipped once it has had its growing time since week 0, and is planted that long before its
+    // trip; growingTime is read as months. Each state's demand is taken as weekly demand.
+    //
+    // DP over weeks x remaining season capacity, backwards from the last week. The per-trip
+    // knapsack is the inner step: one capacity sweep per distinct set of harvestable crops gives the
+    // best trip profit for every load, memoized across the weeks that share that set. Two kinds of
+    // dominated states are pruned: loads that earn no more than a smaller load, and capacities
+    // whose best future profit a smaller capacity already reaches. So each week only combines the
+    // frontier of useful loads with the frontier of the weeks after it.
+    public SeasonPlan planSeason(String farmerState, int vehicleCapacity, int seasonCapacity, int weeks,
+                                 StateGraph graph) {
+        if (vehicleCapacity <= 0 || seasonCapacity < 0 || weeks <= 0) {
+            throw new IllegalArgumentException("Need vehicle capacity > 0, season capacity >= 0 and weeks > 0");
+        }
+        long start = Metrics.start();
+        GraphSnapshot snapshot = graph.snapshot();
+        Catalog catalog = this.catalog.get();
+
+        // Cells of at least the weight resolution, few enough to keep the DP small
+        double stepWeight = Math.max(catalog.weightResolution, (double) seasonCapacity / MAX_SEASON_STEPS);
+        int seasonCells = (int) Math.floor(seasonCapacity / stepWeight + 1e-9);
+        int tripCells = Math.min(seasonCells, (int) Math.floor(vehicleCapacity / stepWeight + 1e-9));
+
+        Map<String, Integer> growingWeeks = new HashMap<>();
+        for (FoodItem food : catalog.foodItems.values()) {
+            growingWeeks.put(food.name, (int) Math.ceil(food.growingTime * 52 / 12.0));
+        }
 
-        // Generate all possible transport combinations
-        for (String destState : stateDemands.keySet()) {
-            if (destState.equals(farmerState)) continue;
+        // Useful loads per week: cells where the best trip profit rises. Weeks with the same
+        // harvestable crops share one sweep.
+        Map<Integer, CapacitySweep> sweeps = new HashMap<>();
+        Map<Integer, int[]> loadsByCount = new HashMap<>();
+        Map<Integer, double[]> profitsByCount = new HashMap<>();
+        CapacitySweep[] weekSweep = new CapacitySweep[weeks];
+        int[][] weekLoads = new int[weeks][];
+        double[][] weekProfits = new double[weeks][];
+        for (int week = 0; week < weeks; week++) {
+            int harvestable = 0;
+            for (int growing : growingWeeks.values()) {
+                if (growing <= week) harvestable++;
+            }
+            if (!sweeps.containsKey(harvestable)) {
+                CapacitySweep sweep = harvestable == 0 ? null : sweepCapacities(farmerState,
+                        (int) Math.floor(tripCells * stepWeight + 1e-9), snapshot, harvestableCatalog(catalog, growingWeeks, week));
+                sweeps.put(harvestable, sweep);
+                int[] loads = new int[tripCells + 1];
+                double[] profits = new double[tripCells + 1];
+                int count = 1; // load 0, profit 0
+                for (int cells = 1; sweep != null && cells <= tripCells; cells++) {
+                    double profit = sweep.profitAt((int) Math.floor(cells * stepWeight + 1e-9));
+                    if (profit > profits[count - 1] + 1e-9) {
+                        loads[count] = cells;
+                        profits[count] = profit;
+                        count++;
+                    }
+                }
+                loadsByCount.put(harvestable, Arrays.copyOf(loads, count));
+                profitsByCount.put(harvestable, Arrays.copyOf(profits, count));
+            }
+            weekSweep[week] = sweeps.get(harvestable);
+            weekLoads[week] = loadsByCount.get(harvestable);
+            weekProfits[week] = profitsByCount.get(harvestable);
+        }
 
-            int distance = graph.getShortestPathDistance(farmerState, destState);
-            int deliveryDays = calculateDeliveryDays(distance);
-
-            // Skip if delivery would take too long
-            if (deliveryDays > MAX_DELIVERY_DAYS) continue;
-
-            for (Map.Entry<String, Integer> demand : stateDemands.get(destState).entrySet()) {
-                String foodName = demand.getKey();
-                int demandQuantity = demand.getValue();
-                FoodItem food = foodItems.get(foodName);
-
-                // Calculate maximum quantity based on vehicle capacity
-                int maxQuantity = Math.min(demandQuantity,
-                        (int)(vehicleCapacity / food.weight));
-
-                if (maxQuantity > 0) {
-                    double baseProfit = calculateBaseProfit(foodName, farmerState,
-                            destState, maxQuantity, graph);
-                    double timeAdjustedProfit = calculateTimeDependentProfit(baseProfit,
-                            deliveryDays, food);
-
-                    // Create knapsack item
-                    KnapsackItem item = new KnapsackItem(
-                            foodName,
-                            destState,
-                            maxQuantity,
-                            food.weight * maxQuantity,
-                            timeAdjustedProfit,
-                            deliveryDays
-                    );
-
-                    allPossibleItems.add(item);
+        // frontier[w]: capacities (ascending) and the best profit from week w on for each, where every
+        // larger capacity earns strictly more; choice[w] holds the load shipped in week w and the
+        // frontier point it leads to in week w + 1
+        int[][] frontierCells = new int[weeks + 1][];
+        double[][] frontierProfit = new double[weeks + 1][];
+        int[][] choiceLoad = new int[weeks][];
+        int[][] choiceNext = new int[weeks][];
+        frontierCells[weeks] = new int[]{0};
+        frontierProfit[weeks] = new double[]{0};
+        double[] best = new double[seasonCells + 1];
+        int[] bestLoad = new int[seasonCells + 1];
+        int[] bestNext = new int[seasonCells + 1];
+        int statesKept = 1;
+        for (int week = weeks - 1; week >= 0; week--) {
+            Arrays.fill(best, Double.NEGATIVE_INFINITY);
+            int[] nextCells = frontierCells[week + 1];
+            double[] nextProfit = frontierProfit[week + 1];
+            int[] loads = weekLoads[week];
+            double[] profits = weekProfits[week];
+            for (int j = 0; j < nextCells.length; j++) {
+                for (int k = 0; k < loads.length && nextCells[j] + loads[k] <= seasonCells; k++) {
+                    int cells = nextCells[j] + loads[k];
+                    double profit = nextProfit[j] + profits[k];
+                    if (profit > best[cells]) {
+                        best[cells] = profit;
+                        bestLoad[cells] = loads[k];
+                        bestNext[cells] = j;
+                    }
+                }
+            }
+
+            int[] cellsKept = new int[seasonCells + 1];
+            double[] profitKept = new double[seasonCells + 1];
+            int[] loadKept = new int[seasonCells + 1];
+            int[] nextKept = new int[seasonCells + 1];
+            int count = 0;
+            for (int cells = 0; cells <= seasonCells; cells++) {
+                if (count == 0 ? best[cells] > Double.NEGATIVE_INFINITY : best[cells] > profitKept[count - 1] + 1e-9) {
+                    cellsKept[count] = cells;
+                    profitKept[count] = best[cells];
+                    loadKept[count] = bestLoad[cells];
+                    nextKept[count] = bestNext[cells];
+                    count++;
                 }
             }
+            frontierCells[week] = Arrays.copyOf(cellsKept, count);
+            frontierProfit[week] = Arrays.copyOf(profitKept, count);
+            choiceLoad[week] = Arrays.copyOf(loadKept, count);
+            choiceNext[week] = Arrays.copyOf(nextKept, count);
+            statesKept += count;
         }
 
-        // Solve knapsack problem
-        solveKnapsack(allPossibleItems, vehicleCapacity);
+        // Walk forward from the most profitable season start
+        Map<Integer, OptimizationResult> shipments = new TreeMap<>();
+        Map<Integer, Map<String, Integer>> plantings = new TreeMap<>();
+        double totalProfit = 0;
+        int point = frontierCells[0].length - 1;
+        for (int week = 0; week < weeks; week++) {
+            int load = choiceLoad[week][point];
+            point = choiceNext[week][point];
+            if (load == 0) continue;
+            OptimizationResult trip = weekSweep[week].planFor((int) Math.floor(load * stepWeight + 1e-9));
+            shipments.put(week, trip);
+            totalProfit += trip.totalProfit();
+            for (TransportPlan plan : trip.plans.values()) {
+                for (Map.Entry<String, Integer> item : plan.itemQuantities.entrySet()) {
+                    plantings.computeIfAbsent(week - growingWeeks.get(item.getKey()), k -> new TreeMap<>())
+                            .merge(item.getKey(), item.getValue(), Integer::sum);
+                }
+            }
+        }
+        Metrics.stop(Metrics.Phase.SEASON, start);
+        return new SeasonPlan(farmerState, vehicleCapacity, seasonCapacity, weeks, stepWeight, shipments,
+                plantings, totalProfit, statesKept, (int) sweeps.values().stream().filter(Objects::nonNull).count());
     }
 
-    private double calculateBaseProfit(String foodName, String fromState,
-                                       String toState, int quantity, StateGraph graph) {
-        FoodItem food = foodItems.get(foodName);
-        if (food == null) return 0;
-
-        int distance = graph.getShortestPathDistance(fromState, toState);
-        if (distance == Integer.MAX_VALUE) return 0;
+    // The catalog restricted to foods harvestable by the given week
+    private static Catalog harvestableCatalog(Catalog catalog, Map<String, Integer> growingWeeks, int week) {
+        Map<String, FoodItem> foods = new HashMap<>();
+        for (FoodItem food : catalog.foodItems.values()) {
+            if (growingWeeks.get(food.name) <= week) foods.put(food.name, food);
+        }
+        Map<String, Map<String, Integer>> demands = new HashMap<>();
+        for (Map.Entry<String, Map<String, Integer>> state : catalog.stateDemands.entrySet()) {
+            Map<String, Integer> foodDemands = new HashMap<>();
+            for (Map.Entry<String, Integer> demand : state.getValue().entrySet()) {
+                if (foods.containsKey(demand.getKey())) foodDemands.put(demand.getKey(), demand.getValue());
+            }
+            demands.put(state.getKey(), foodDemands);
+        }
+        return new Catalog(catalog.version, foods, demands, catalog.boundedQuantities, catalog.weightResolution,
+                catalog.parallelKnapsack, catalog.knapsackEngine, catalog.solverTimeBudgetNanos,
+                catalog.approximationEpsilon);
+    }
 
-        double productionCost = food.productionCost * quantity;
-        double transportCost = food.transportCostPerMile * distance * quantity * food.weight;
-        double revenue = food.pricePerUnit * quantity;
+    public void printSeasonPlan(SeasonPlan plan, PrintWriter outputWriter) {
+        outputWriter.println("\nSeason Plan:");
+        outputWriter.println("=============================================");
+        outputWriter.printf("Farmer in %s, %d kg truck, %d kg season capacity, %d weeks\n",
+                plan.farmerState, plan.vehicleCapacity, plan.seasonCapacity, plan.weeks);
+
+        Set<Integer> weeks = new TreeSet<>(plan.plantings.keySet());
+        weeks.addAll(plan.shipments.keySet());
+        for (int week : weeks) {
+            Map<String, Integer> planting = plan.plantings.get(week);
+            if (planting != null) {
+                StringBuilder crops = new StringBuilder();
+                for (Map.Entry<String, Integer> crop : planting.entrySet()) {
+                    if (crops.length() > 0) crops.append(", ");
+                    crops.append(crop.getKey()).append(' ').append(crop.getValue()).append(" units");
+                }
+                outputWriter.printf("\nWeek %d: plant %s\n", week, crops);
+            }
+            OptimizationResult trip = plan.shipments.get(week);
+            if (trip != null) {
+                outputWriter.printf("\nWeek %d: ship %d kg load, ₹%.2f\n", week, trip.vehicleCapacity, trip.totalProfit());
+                for (TransportPlan transport : trip.plans.values()) {
+                    StringBuilder items = new StringBuilder();
+                    for (Map.Entry<String, Integer> item : transport.itemQuantities.entrySet()) {
+                        if (items.length() > 0) items.append(", ");
+                        items.append(item.getKey()).append(' ').append(item.getValue()).append(" units");
+                    }
+                    outputWriter.printf("- %s (%d days, %.2f kg): %s, ₹%.2f\n", transport.destination,
+                            transport.estimatedDays, transport.totalWeight, items, transport.totalProfit);
+                }
+            }
+        }
+        outputWriter.printf("\nTotal Season Profit: ₹%.2f over %d trips\n", plan.totalProfit, plan.shipments.size());
+        outputWriter.flush();
+    }
 
-        return revenue - productionCost - transportCost;
+    // Every non-dominated trade-off between profit and the slowest delivery, up to maxDays (which
+    // may go past the usual MAX_DELIVERY_DAYS cut-off). Candidates are generated as for
+    // optimizeDistribution; the single-objective DP is replaced by ParetoKnapsack.
+    public ParetoFront optimizeParetoFront(String farmerState, int vehicleCapacity, int maxDays, StateGraph graph) {
+        if (maxDays < 0) {
+            throw new IllegalArgumentException("Max delivery days must not be negative: " + maxDays);
+        }
+        long start = Metrics.start();
+        GraphSnapshot snapshot = graph.snapshot();
+        Catalog catalog = this.catalog.get();
+        ShortestPathTree paths = snapshot.getShortestPathTree(farmerState);
+        CandidateSet candidates = generateCandidates(catalog, farmerState, paths, vehicleCapacity,
+                catalog.boundedQuantities, maxDays, new HashMap<>());
+
+        CapacityScale scale = CapacityScale.discretize(candidates.weights(), vehicleCapacity, catalog.weightResolution);
+        List<ParetoPlan> plans = new ArrayList<>();
+        for (ParetoKnapsack.Point point : ParetoKnapsack.solve(scale.itemUnits, candidates.profits(),
+                candidates.days(), scale.capacityUnits)) {
+            List<KnapsackItem> selectedItems = new ArrayList<>();
+            for (int index : point.selected) {
+                selectedItems.add(candidates.item(index));
+            }
+            plans.add(new ParetoPlan(point.maxDays, point.profit, createTransportPlans(selectedItems)));
+        }
+        Metrics.stop(Metrics.Phase.PARETO, start);
+        return new ParetoFront(farmerState, vehicleCapacity, plans, scale, snapshot, catalog);
     }
 
-    private void solveKnapsack(List<KnapsackItem> items, int capacity) {
-        int n = items.size();
-        double[][] dp = new double[n + 1][capacity + 1];
-        boolean[][] selected = new boolean[n + 1][capacity + 1];
-
-        // Fill the dp table
-        for (int i = 1; i <= n; i++) {
-            KnapsackItem item = items.get(i - 1);
-            for (int w = 0; w <= capacity; w++) {
-                if (item.weight <= w) {
-                    double includeItem = dp[i - 1][(int)(w - item.weight)] + item.profit;
-                    if (includeItem > dp[i - 1][w]) {
-                        dp[i][w] = includeItem;
-                        selected[i][w] = true;
-                    } else {
-                        dp[i][w] = dp[i - 1][w];
-                    }
-                } else {
-                    dp[i][w] = dp[i - 1][w];
+    public void printParetoFront(ParetoFront front, PrintWriter outputWriter) {
+        outputWriter.println("\nProfit vs Delivery Time:");
+        outputWriter.println("=============================================");
+        outputWriter.printf("Farmer in %s, %d kg truck\n", front.farmerState, front.vehicleCapacity);
+        if (front.plans.isEmpty()) {
+            outputWriter.println("\nNo profitable deliveries found.");
+        }
+        ParetoPlan previous = null;
+        for (ParetoPlan plan : front.plans) {
+            outputWriter.printf("\nWithin %d days: ₹%.2f", plan.maxDeliveryDays, plan.totalProfit);
+            if (previous != null) {
+                int extraDays = plan.maxDeliveryDays - previous.maxDeliveryDays;
+                outputWriter.printf(" (₹%.2f more for %d more day%s)", plan.totalProfit - previous.totalProfit,
+                        extraDays, extraDays == 1 ? "" : "s");
+            }
+            outputWriter.println();
+            for (TransportPlan transport : plan.plans.values()) {
+                StringBuilder items = new StringBuilder();
+                for (Map.Entry<String, Integer> item : transport.itemQuantities.entrySet()) {
+                    if (items.length() > 0) items.append(", ");
+                    items.append(item.getKey()).append(' ').append(item.getValue()).append(" units");
                 }
+                outputWriter.printf("- %s (%d days, %.2f kg): %s, ₹%.2f\n", transport.destination,
+                        transport.estimatedDays, transport.totalWeight, items, transport.totalProfit);
             }
+            previous = plan;
         }
+        outputWriter.flush();
+    }
 
-        // Reconstruct solution
-        List<KnapsackItem> selectedItems = new ArrayList<>();
-        int w = capacity;
-        for (int i = n; i > 0; i--) {
-            if (selected[i][w]) {
-                selectedItems.add(items.get(i - 1));
-                w -= items.get(i - 1).weight;
+    public Tour planTour(OptimizationResult result) {
+        return planTour(result, TOUR_TIME_BUDGET_MILLIS);
+    }
+
+    // Orders the plan's destinations into one trip over the shortest-path distances between them,
+    // then re-prices every stop for the distance and days it actually takes to get there. Uses the
+    // graph version and catalog the plan was computed against.
+    public Tour planTour(OptimizationResult result, long timeBudgetMillis) {
+        long start = Metrics.start();
+        long deadline = System.nanoTime() + timeBudgetMillis * 1_000_000L;
+        GraphSnapshot graph = result.graph;
+        List<TransportPlan> plans = new ArrayList<>(result.plans.values());
+        plans.sort(Comparator.comparing(plan -> plan.destination)); // same input, same tour
+
+        // Node 0 is the farmer; one (cached) tree per node gives the whole distance matrix
+        int n = plans.size() + 1;
+        String[] names = new String[n];
+        names[0] = result.farmerState;
+        for (int i = 1; i < n; i++) {
+            names[i] = plans.get(i - 1).destination;
+        }
+        ShortestPathTree[] trees = new ShortestPathTree[n];
+        int[][] distances = new int[n][n];
+        for (int i = 0; i < n; i++) {
+            trees[i] = graph.getShortestPathTree(names[i]);
+            for (int j = 0; j < n; j++) {
+                distances[i][j] = trees[i].distanceTo(names[j]);
             }
         }
+        int[] order = TourPlanner.plan(distances, deadline);
 
-        // Create transport plans from selected items
-        createTransportPlans(selectedItems);
+        List<TourStop> stops = new ArrayList<>();
+        List<String> path = new ArrayList<>();
+        path.add(result.farmerState);
+        int driven = 0;
+        double totalProfit = 0;
+        for (int k = 1; k < n; k++) {
+            int from = order[k - 1];
+            int to = order[k];
+            List<String> leg = trees[from].pathTo(names[to]);
+            path.addAll(leg.subList(1, leg.size()));
+            driven += distances[from][to];
+
+            TransportPlan planned = plans.get(to - 1);
+            TransportPlan delivered = repriceForDistance(result.catalog, planned, driven);
+            stops.add(new TourStop(delivered, driven));
+            totalProfit += delivered.totalProfit;
+        }
+        Metrics.stop(Metrics.Phase.TOUR, start);
+        return new Tour(result.farmerState, stops, path, driven, totalProfit, result.totalProfit());
     }
 
-    private void createTransportPlans(List<KnapsackItem> selectedItems) {
-        Map<String, TransportPlan> plans = new HashMap<>();
+    // Profit is linear in quantity, so each food's merged quantity is priced as one item
+    private TransportPlan repriceForDistance(Catalog catalog, TransportPlan plan, int distance) {
+        int deliveryDays = calculateDeliveryDays(distance);
+        double profit = 0;
+        for (Map.Entry<String, Integer> entry : plan.itemQuantities.entrySet()) {
+            FoodItem food = catalog.foodItems.get(entry.getKey());
+            profit += createKnapsackItem(catalog, food, plan.destination, entry.getValue(), distance, deliveryDays).profit;
+        }
+        return new TransportPlan(plan.destination, plan.itemQuantities, profit, deliveryDays, plan.totalWeight);
+    }
 
-        for (KnapsackItem item : selectedItems) {
-            plans.putIfAbsent(item.destination, new TransportPlan());
-            TransportPlan plan = plans.get(item.destination);
+    public void printTour(Tour tour, OptimizationResult result, PrintWriter outputWriter) {
+        outputWriter.printf("\nMulti-Stop Delivery Trip from %s:\n", tour.farmerState);
+        outputWriter.println("=============================================");
 
-            plan.destination = item.destination;
-            plan.itemQuantities.put(item.foodName, item.quantity);
-            plan.totalProfit += item.profit;
-            plan.estimatedDays = Math.max(plan.estimatedDays, item.deliveryDays);
-            plan.totalWeight += item.weight;
+        int stopNumber = 0;
+        for (TourStop stop : tour.stops) {
+            TransportPlan plan = stop.plan;
+            outputWriter.printf("\nStop %d: %s (%d km driven, day %d)\n",
+                    ++stopNumber, plan.destination, stop.distance, plan.estimatedDays);
+            if (plan.estimatedDays > MAX_DELIVERY_DAYS) {
+                outputWriter.printf("Warning: arrives after the %d-day freshness window\n", MAX_DELIVERY_DAYS);
+            }
+            outputWriter.printf("Total Load Weight: %.2f kg\n", plan.totalWeight);
+            for (Map.Entry<String, Integer> entry : plan.itemQuantities.entrySet()) {
+                FoodItem food = result.catalog.foodItems.get(entry.getKey());
+                outputWriter.printf("- %s: %d units (%.2f kg)\n",
+                        entry.getKey(), entry.getValue(), entry.getValue() * food.weight);
+            }
+            outputWriter.printf("Expected Profit: ₹%.2f\n", plan.totalProfit);
         }
 
-        optimalPlans = plans;
+        outputWriter.println("\nTrip Route:");
+        outputWriter.println("Route: " + String.join(" -> ", tour.path));
+        outputWriter.println("Total distance: " + tour.totalDistance + " km");
+        outputWriter.printf("\nTotal Expected Profit: ₹%.2f (₹%.2f with a separate trip to each destination)\n",
+                tour.totalProfit, tour.separateTripsProfit);
+        outputWriter.flush();
+    }
+
+    public void printCapacityCurve(CapacitySweep sweep, int step, PrintWriter outputWriter) {
+        outputWriter.printf("\nExpected Profit by Vehicle Capacity from %s:\n", sweep.farmerState);
+        outputWriter.println("=============================================");
+        for (int capacity = 0; capacity <= sweep.maxCapacity; capacity += Math.max(1, step)) {
+            outputWriter.printf("%8d kg: ₹%.2f\n", capacity, sweep.profitAt(capacity));
+        }
+        if (sweep.maxCapacity % Math.max(1, step) != 0) {
+            outputWriter.printf("%8d kg: ₹%.2f\n", sweep.maxCapacity, sweep.profitAt(sweep.maxCapacity));
+        }
+        outputWriter.flush();
     }
 
-    public void printOptimalSolution(StateGraph graph,PrintWriter outputWriter) {
+    // Prices and routes are shown as they were in the versions the plan was computed against
+    public void printOptimalSolution(OptimizationResult result, StateGraph graph, PrintWriter outputWriter) {
+        long start = Metrics.start();
         outputWriter.println("\nOptimal Distribution Plan with Time Constraints:");
         outputWriter.println("=============================================");
 
         double totalProfit = 0;
 
-        for (TransportPlan plan : optimalPlans.values()) {
+        for (TransportPlan plan : result.plans.values()) {
             outputWriter.printf("\nDestination: %s\n", plan.destination);
             outputWriter.printf("Estimated Delivery Time: %d days\n", plan.estimatedDays);
             outputWriter.printf("Total Load Weight: %.2f kg\n", plan.totalWeight);
@@ -495,7 +2228,7 @@ class ProfitOptimizer {
             for (Map.Entry<String, Integer> entry : plan.itemQuantities.entrySet()) {
                 String foodName = entry.getKey();
                 int quantity = entry.getValue();
-                FoodItem food = foodItems.get(foodName);
+                FoodItem food = result.catalog.foodItems.get(foodName);
 
                 outputWriter.printf("- %s: %d units (%.2f kg)\n",
                         foodName, quantity, quantity * food.weight);
@@ -503,20 +2236,68 @@ class ProfitOptimizer {
 
             outputWriter.printf("Expected Profit: ₹%.2f\n", plan.totalProfit);
             outputWriter.println("\nRecommended Route:");
-            graph.printShortestPath(graph.getCurrentState(), plan.destination, outputWriter);
+            graph.printShortestPath(result.graph, result.farmerState, plan.destination, outputWriter);
 
             totalProfit += plan.totalProfit;
         }
 
         outputWriter.printf("\nTotal Expected Profit: ₹%.2f\n", totalProfit);
+        CapacityScale scale = result.capacityScale;
+        if (scale.roundingErrorKg > 0) {
+            outputWriter.printf("Load weights rounded up to %.2f kg steps (%.2f kg added across candidates, "
+                    + "at most %.1f%% of any one load)\n",
+                    scale.unitWeight, scale.roundingErrorKg, scale.maxRelativeError * 100);
+        }
+        if (scale.unusedCapacityKg > 0) {
+            outputWriter.printf("%.2f kg of truck capacity left unplanned below one %.2f kg step\n",
+                    scale.unusedCapacityKg, scale.unitWeight);
+        }
+        KnapsackSolution solution = result.knapsackSolution;
+        if (!solution.isOptimal()) {
+            outputWriter.printf("Solver: %s, within %.2f%% of the best possible profit\n",
+                    solution.engine, solution.optimalityGap() * 100);
+        }
         outputWriter.println("\nNote: All deliveries are scheduled within the 7-day freshness window");
         outputWriter.println("Daily distance limit of 400km has been considered for delivery time calculations");
         outputWriter.flush();
+        Metrics.stop(Metrics.Phase.REPORT, start);
     }
 }
 
 public class Main {
     public static void main(String[] args) {
+        // Metrics are on unless -Dfarmer.metrics=false; -Dfarmer.metrics.logSeconds=N also logs them to stderr
+        Metrics.registerMBean();
+        long logSeconds = Long.getLong("farmer.metrics.logSeconds", 0L);
+        if (logSeconds > 0) {
+            Metrics.startLogging(logSeconds, System.err);
+        }
+
+        if (args.length > 0 && args[0].equals("--batch")) {
+            runBatch(args);
+            return;
+        }
+        if (args.length > 0 && args[0].equals("--serve")) {
+            runServer(args);
+            return;
+        }
+        if (args.length > 0 && args[0].equals("--cooperative")) {
+            runCooperative(args);
+            return;
+        }
+        if (args.length > 0 && args[0].equals("--sensitivity")) {
+            runSensitivity(args);
+            return;
+        }
+        if (args.length > 0 && args[0].equals("--season")) {
+            runSeason(args);
+            return;
+        }
+        if (args.length > 0 && args[0].equals("--pareto")) {
+            runPareto(args);
+            return;
+        }
+
         StateGraph graph = new StateGraph();
         ProfitOptimizer optimizer = new ProfitOptimizer();
         Scanner scanner = new Scanner(System.in);
@@ -553,7 +2334,7 @@ public class Main {
         }
 
         // Load data from selected file
-        graph.loadFromTextFile(filePath, optimizer);
+        if (!loadData(filePath, graph, optimizer)) return;
 
         System.out.println("\nWelcome to Farmer's Profit Optimization System!");
         System.out.println("===========================================");
@@ -573,8 +2354,9 @@ public class Main {
 
         try (PrintWriter outputWriter = new PrintWriter(outputFilePath)) {
             // Initial optimization
-            optimizer.optimizeDistribution(farmerState, vehicleCapacity, graph);
-            optimizer.printOptimalSolution(graph, outputWriter);
+            ProfitOptimizer.OptimizationResult result =
+                    optimizer.optimizeDistribution(farmerState, vehicleCapacity, graph);
+            optimizer.printOptimalSolution(result, graph, outputWriter);
 
             while (true) {
                 System.out.println("\nOptions:");
@@ -584,6 +2366,9 @@ public class Main {
                 System.out.println("4. Add new route");
                 System.out.println("5. Recalculate optimal distribution");
                 System.out.println("6. Exit");
+                System.out.println("7. Compare vehicle capacities");
+                System.out.println("8. Find route between two states");
+                System.out.println("9. Deliver the current plan in one multi-stop trip");
                 System.out.print("Enter choice: ");
 
                 int choice = scanner.nextInt();
@@ -594,16 +2379,16 @@ public class Main {
                         System.out.print("Enter new state: ");
                         farmerState = scanner.nextLine();
                         graph.setCurrentState(farmerState);
-                        optimizer.optimizeDistribution(farmerState, vehicleCapacity, graph);
-                        optimizer.printOptimalSolution(graph,outputWriter);
+                        result = optimizer.optimizeDistribution(farmerState, vehicleCapacity, graph);
+                        optimizer.printOptimalSolution(result, graph, outputWriter);
                         break;
 
                     case 2:
                         System.out.print("Enter new vehicle capacity (in kg): ");
                         vehicleCapacity = scanner.nextInt();
                         scanner.nextLine(); // consume newline
-                        optimizer.optimizeDistribution(farmerState, vehicleCapacity, graph);
-                        optimizer.printOptimalSolution(graph,outputWriter);
+                        result = optimizer.optimizeDistribution(farmerState, vehicleCapacity, graph);
+                        optimizer.printOptimalSolution(result, graph, outputWriter);
                         break;
 
                     case 3:
@@ -612,13 +2397,13 @@ public class Main {
 
                     case 4:
                         graph.addUserDefinedRoute(scanner);
-                        optimizer.optimizeDistribution(farmerState, vehicleCapacity, graph);
-                        optimizer.printOptimalSolution(graph,outputWriter);
+                        result = optimizer.reoptimize(result, graph);
+                        optimizer.printOptimalSolution(result, graph, outputWriter);
                         break;
 
                     case 5:
-                        optimizer.optimizeDistribution(farmerState, vehicleCapacity, graph);
-                        optimizer.printOptimalSolution(graph,outputWriter);
+                        result = optimizer.optimizeDistribution(farmerState, vehicleCapacity, graph);
+                        optimizer.printOptimalSolution(result, graph, outputWriter);
                         break;
 
                     case 6:
@@ -627,6 +2412,41 @@ public class Main {
                         System.exit(0);
                         break;
 
+                    case 7:
+                        System.out.print("Enter largest vehicle capacity to compare (in kg): ");
+                        int maxCapacity = scanner.nextInt();
+                        System.out.print("Enter capacity step (in kg): ");
+                        int step = scanner.nextInt();
+                        scanner.nextLine(); // consume newline
+                        ProfitOptimizer.CapacitySweep sweep =
+                                optimizer.sweepCapacities(farmerState, maxCapacity, graph);
+                        optimizer.printCapacityCurve(sweep, step, outputWriter);
+                        break;
+
+                    case 8:
+                        System.out.print("Enter start state: ");
+                        String routeStart = scanner.nextLine();
+                        System.out.print("Enter destination state: ");
+                        String routeEnd = scanner.nextLine();
+                        try {
+                            Route route = graph.findRoute(routeStart, routeEnd);
+                            if (route.path.isEmpty()) {
+                                System.out.println("No route from " + routeStart + " to " + routeEnd);
+                            } else {
+                                System.out.println("Route: " + String.join(" -> ", route.path));
+                                System.out.println("Total distance: " + route.distance + " km");
+                            }
+                            System.out.printf("%s settled %d of %d states\n",
+                                    route.method, route.settled, graph.getCompactGraph().size());
+                        } catch (IllegalArgumentException e) {
+                            System.out.println(e.getMessage());
+                        }
+                        break;
+
+                    case 9:
+                        optimizer.printTour(optimizer.planTour(result), result, outputWriter);
+                        break;
+
                     default:
                         System.out.println("Invalid choice! Please try again.");
                 }
@@ -635,4 +2455,370 @@ public class Main {
             // Handle the exception, e.g., log the error or provide a user-friendly message
             System.out.println("Error creating output file: " + e.getMessage());
         }
-    } }
+    }
+
+    private static boolean loadData(String filePath, StateGraph graph, ProfitOptimizer optimizer) {
+        try {
+            DataFileLoader.Report report = new DataFileLoader(graph, optimizer).load(Paths.get(filePath));
+            if (report.hasErrors()) {
+                System.err.println("Skipped malformed rows in " + filePath + ": " + report);
+                report.errors.forEach(error -> System.err.println("  " + error));
+            }
+            return true;
+        } catch (IOException e) {
+            System.out.println("Error reading data file: " + e.getMessage());
+            return false;
+        }
+    }
+
+    // --serve <data file> [--port N] [--max-concurrent N] [--max-queued N] [--cache entries] [--bounded] [--astar] [--hierarchy file]
+    private static void runServer(String[] args) {
+        if (args.length < 2) {
+            System.out.println("Usage: java Main --serve <data file> [--port N] [--max-concurrent N] [--max-queued N] [--cache entries] [--bounded] [--astar] [--hierarchy file]");
+            return;
+        }
+
+        int port = 8080;
+        int maxConcurrent = Runtime.getRuntime().availableProcessors();
+        int maxQueued = 256;
+        String hierarchyPath = null;
+        StateGraph graph = new StateGraph();
+        ProfitOptimizer optimizer = new ProfitOptimizer();
+        for (int i = 2; i < args.length; i++) {
+            if (args[i].equals("--port") && i + 1 < args.length) {
+                port = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("--max-concurrent") && i + 1 < args.length) {
+                maxConcurrent = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("--max-queued") && i + 1 < args.length) {
+                maxQueued = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("--cache") && i + 1 < args.length) {
+                optimizer.setPlanCache(Integer.parseInt(args[++i]), 0);
+            } else if (args[i].equals("--bounded")) {
+                optimizer.setBoundedQuantities(true);
+            } else if (args[i].equals("--astar")) {
+                graph.setPointToPointRouting(true);
+            } else if (args[i].equals("--hierarchy") && i + 1 < args.length) {
+                hierarchyPath = args[++i];
+            } else {
+                System.out.println("Unknown option: " + args[i]);
+                return;
+            }
+        }
+
+        if (!loadData(args[1], graph, optimizer)) return;
+        if (hierarchyPath != null) {
+            graph.enableContractionHierarchy(Paths.get(hierarchyPath));
+        }
+
+        PlanningServer server = new PlanningServer(graph, optimizer, maxConcurrent, maxQueued);
+        try {
+            server.start(port);
+        } catch (IOException e) {
+            System.out.println("Could not start server: " + e.getMessage());
+            return;
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> server.stop(2)));
+        System.out.printf("Serving on port %d (%s, %d concurrent, %d queued)\n", server.port(),
+                server.usesVirtualThreads() ? "virtual threads" : "thread pool", maxConcurrent, maxQueued);
+    }
+
+    // One shared plan for a whole cooperative; the farmers file has "farmer_id,state,capacity" rows
+    private static void runCooperative(String[] args) {
+        if (args.length < 4) {
+            System.out.println("Usage: java Main --cooperative <data file> <farmers file> <output file> [--no-metrics]");
+            return;
+        }
+        for (int i = 4; i < args.length; i++) {
+            if (args[i].equals("--no-metrics")) {
+                Metrics.setEnabled(false);
+            } else {
+                System.out.println("Unknown option: " + args[i]);
+                return;
+            }
+        }
+
+        StateGraph graph = new StateGraph();
+        ProfitOptimizer optimizer = new ProfitOptimizer();
+        if (!loadData(args[1], graph, optimizer)) {
+            return;
+        }
+
+        try (PrintWriter outputWriter = new PrintWriter(args[3], "UTF-8")) {
+            List<ProfitOptimizer.Farmer> farmers = readFarmers(args[2]);
+            long start = System.nanoTime();
+            ProfitOptimizer.CooperativePlan plan = optimizer.planCooperative(farmers, graph);
+            double millis = (System.nanoTime() - start) / 1e6;
+            optimizer.printCooperativePlan(plan, outputWriter);
+            System.out.printf("Planned %d farmers from %d states in %.1f ms (%d flow phases, %d rounds) -> %s\n",
+                    farmers.size(), plan.originStates, millis, plan.flowPhases, plan.pricingRounds, args[3]);
+            System.out.printf("Total Expected Profit: ₹%.2f (pooled flow bound ₹%.2f)\n",
+                    plan.totalProfit, plan.flowProfit);
+            if (Metrics.isEnabled()) {
+                System.out.println("Metrics: " + Metrics.summary());
+            }
+        } catch (IOException e) {
+            System.out.println("Cooperative planning failed: " + e.getMessage());
+        } catch (IllegalArgumentException e) {
+            System.out.println("Error: " + e.getMessage());
+        }
+    }
+
+    private static void runSensitivity(String[] args) {
+        if (args.length < 5) {
+            System.out.println("Usage: java Main --sensitivity <data file> <farmer state> <vehicle capacity> <output file> [--scenarios N] [--spread fraction] [--seed N] [--threads N] [--bounded] [--no-metrics]");
+            return;
+        }
+
+        int scenarios = 1000;
+        double spread = 0.3;
+        long seed = 42;
+        int threads = Runtime.getRuntime().availableProcessors();
+        StateGraph graph = new StateGraph();
+        ProfitOptimizer optimizer = new ProfitOptimizer();
+        for (int i = 5; i < args.length; i++) {
+            if (args[i].equals("--scenarios") && i + 1 < args.length) {
+                scenarios = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("--spread") && i + 1 < args.length) {
+                spread = Double.parseDouble(args[++i]);
+            } else if (args[i].equals("--seed") && i + 1 < args.length) {
+                seed = Long.parseLong(args[++i]);
+            } else if (args[i].equals("--threads") && i + 1 < args.length) {
+                threads = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("--bounded")) {
+                optimizer.setBoundedQuantities(true);
+            } else if (args[i].equals("--no-metrics")) {
+                Metrics.setEnabled(false);
+            } else {
+                System.out.println("Unknown option: " + args[i]);
+                return;
+            }
+        }
+
+        if (!loadData(args[1], graph, optimizer)) {
+            return;
+        }
+        String farmerState = args[2];
+        if (!graph.hasState(farmerState)) {
+            System.out.println("Invalid state: " + farmerState);
+            return;
+        }
+
+        try (PrintWriter outputWriter = new PrintWriter(args[4], "UTF-8")) {
+            long start = System.nanoTime();
+            ProfitOptimizer.SensitivityReport report = optimizer.analyzeSensitivity(farmerState,
+                    Integer.parseInt(args[3]), graph, scenarios, spread, seed, threads);
+            optimizer.printSensitivity(report, outputWriter);
+            System.out.printf("Ran %d scenarios on %d threads in %.1f ms -> %s\n",
+                    scenarios, threads, (System.nanoTime() - start) / 1e6, args[4]);
+            System.out.printf("Profit: mean ₹%.2f, p5 ₹%.2f, p50 ₹%.2f, p95 ₹%.2f\n", report.mean(),
+                    report.percentile(0.05), report.percentile(0.50), report.percentile(0.95));
+            if (Metrics.isEnabled()) {
+                System.out.println("Metrics: " + Metrics.summary());
+            }
+        } catch (IOException e) {
+            System.out.println("Sensitivity analysis failed: " + e.getMessage());
+        } catch (IllegalArgumentException e) {
+            System.out.println("Error: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            System.out.println("Sensitivity analysis interrupted");
+        }
+    }
+
+    private static void runSeason(String[] args) {
+        if (args.length < 6) {
+            System.out.println("Usage: java Main --season <data file> <farmer state> <vehicle capacity> <season capacity> <output file> [--weeks N] [--no-metrics]");
+            return;
+        }
+
+        int weeks = 52;
+        for (int i = 6; i < args.length; i++) {
+            if (args[i].equals("--weeks") && i + 1 < args.length) {
+                weeks = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("--no-metrics")) {
+                Metrics.setEnabled(false);
+            } else {
+                System.out.println("Unknown option: " + args[i]);
+                return;
+            }
+        }
+
+        StateGraph graph = new StateGraph();
+        ProfitOptimizer optimizer = new ProfitOptimizer();
+        if (!loadData(args[1], graph, optimizer)) {
+            return;
+        }
+        String farmerState = args[2];
+        if (!graph.hasState(farmerState)) {
+            System.out.println("Invalid state: " + farmerState);
+            return;
+        }
+
+        try (PrintWriter outputWriter = new PrintWriter(args[5], "UTF-8")) {
+            long start = System.nanoTime();
+            ProfitOptimizer.SeasonPlan plan = optimizer.planSeason(farmerState, Integer.parseInt(args[3]),
+                    Integer.parseInt(args[4]), weeks, graph);
+            double millis = (System.nanoTime() - start) / 1e6;
+            optimizer.printSeasonPlan(plan, outputWriter);
+            System.out.printf("Planned %d weeks in %.1f ms (%d trip tables, %d DP states kept) -> %s\n",
+                    weeks, millis, plan.tripTables, plan.statesKept, args[5]);
+            System.out.printf("Total Season Profit: ₹%.2f over %d trips\n", plan.totalProfit, plan.shipments.size());
+            if (Metrics.isEnabled()) {
+                System.out.println("Metrics: " + Metrics.summary());
+            }
+        } catch (IOException e) {
+            System.out.println("Season planning failed: " + e.getMessage());
+        } catch (IllegalArgumentException e) {
+            System.out.println("Error: " + e.getMessage());
+        }
+    }
+
+    private static void runPareto(String[] args) {
+        if (args.length < 5) {
+            System.out.println("Usage: java Main --pareto <data file> <farmer state> <vehicle capacity> <output file> [--max-days N] [--bounded] [--no-metrics]");
+            return;
+        }
+
+        int maxDays = 14;
+        StateGraph graph = new StateGraph();
+        ProfitOptimizer optimizer = new ProfitOptimizer();
+        for (int i = 5; i < args.length; i++) {
+            if (args[i].equals("--max-days") && i + 1 < args.length) {
+                maxDays = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("--bounded")) {
+                optimizer.setBoundedQuantities(true);
+            } else if (args[i].equals("--no-metrics")) {
+                Metrics.setEnabled(false);
+            } else {
+                System.out.println("Unknown option: " + args[i]);
+                return;
+            }
+        }
+
+        if (!loadData(args[1], graph, optimizer)) {
+            return;
+        }
+        String farmerState = args[2];
+        if (!graph.hasState(farmerState)) {
+            System.out.println("Invalid state: " + farmerState);
+            return;
+        }
+
+        try (PrintWriter outputWriter = new PrintWriter(args[4], "UTF-8")) {
+            long start = System.nanoTime();
+            ProfitOptimizer.ParetoFront front = optimizer.optimizeParetoFront(farmerState,
+                    Integer.parseInt(args[3]), maxDays, graph);
+            double millis = (System.nanoTime() - start) / 1e6;
+            optimizer.printParetoFront(front, outputWriter);
+            System.out.printf("Found %d Pareto-optimal plans within %d days in %.1f ms -> %s\n",
+                    front.plans.size(), maxDays, millis, args[4]);
+            if (Metrics.isEnabled()) {
+                System.out.println("Metrics: " + Metrics.summary());
+            }
+        } catch (IOException e) {
+            System.out.println("Pareto planning failed: " + e.getMessage());
+        } catch (IllegalArgumentException e) {
+            System.out.println("Error: " + e.getMessage());
+        }
+    }
+
+    private static List<ProfitOptimizer.Farmer> readFarmers(String path) throws IOException {
+        List<ProfitOptimizer.Farmer> farmers = new ArrayList<>();
+        try (BufferedReader br = Files.newBufferedReader(Paths.get(path), StandardCharsets.UTF_8)) {
+            String line;
+            int lineNumber = 0;
+            while ((line = br.readLine()) != null) {
+                lineNumber++;
+                if (line.trim().isEmpty()) continue;
+                String[] data = line.split(",");
+                if (data.length < 3) {
+                    throw new IOException("Line " + lineNumber + ": expected farmer_id,state,capacity");
+                }
+                int capacity;
+                try {
+                    capacity = Integer.parseInt(data[2].trim());
+                } catch (NumberFormatException e) {
+                    // Skip a header row such as "farmer_id,state,capacity"
+                    if (lineNumber == 1) continue;
+                    throw new IOException("Line " + lineNumber + ": invalid capacity " + data[2].trim());
+                }
+                farmers.add(new ProfitOptimizer.Farmer(data[0].trim(), data[1].trim(), capacity));
+            }
+        }
+        return farmers;
+    }
+
+    // --batch <data file> <query file> <output file> [--threads N] [--snapshot file] [--cache entries] [--bounded] [--astar] [--hierarchy file] [--tour] [--metrics-log seconds] [--no-metrics]
+    private static void runBatch(String[] args) {
+        if (args.length < 4) {
+            System.out.println("Usage: java Main --batch <data file> <query file> <output file> [--threads N] [--snapshot file] [--cache entries] [--bounded] [--astar] [--hierarchy file] [--tour] [--metrics-log seconds] [--no-metrics]");
+            return;
+        }
+
+        int threads = Runtime.getRuntime().availableProcessors();
+        String snapshotPath = null;
+        String hierarchyPath = null;
+        boolean tours = false;
+        StateGraph graph = new StateGraph();
+        ProfitOptimizer optimizer = new ProfitOptimizer();
+        for (int i = 4; i < args.length; i++) {
+            if (args[i].equals("--threads") && i + 1 < args.length) {
+                threads = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("--snapshot") && i + 1 < args.length) {
+                snapshotPath = args[++i];
+            } else if (args[i].equals("--cache") && i + 1 < args.length) {
+                optimizer.setPlanCache(Integer.parseInt(args[++i]), 0);
+            } else if (args[i].equals("--bounded")) {
+                optimizer.setBoundedQuantities(true);
+            } else if (args[i].equals("--astar")) {
+                graph.setPointToPointRouting(true);
+            } else if (args[i].equals("--hierarchy") && i + 1 < args.length) {
+                hierarchyPath = args[++i];
+            } else if (args[i].equals("--tour")) {
+                tours = true;
+            } else if (args[i].equals("--metrics-log") && i + 1 < args.length) {
+                Metrics.startLogging(Long.parseLong(args[++i]), System.err);
+            } else if (args[i].equals("--no-metrics")) {
+                Metrics.setEnabled(false);
+            } else {
+                System.out.println("Unknown option: " + args[i]);
+                return;
+            }
+        }
+
+        if (snapshotPath != null) {
+            try {
+                DataSnapshot.Source source = DataSnapshot.loadOrRebuild(
+                        Paths.get(args[1]), Paths.get(snapshotPath), graph, optimizer);
+                System.out.println("Loaded data from " + (source == DataSnapshot.Source.SNAPSHOT ? snapshotPath : args[1]));
+            } catch (IOException e) {
+                System.out.println("Error loading data: " + e.getMessage());
+                return;
+            }
+        } else if (!loadData(args[1], graph, optimizer)) {
+            return;
+        }
+        if (hierarchyPath != null) {
+            boolean reused = graph.enableContractionHierarchy(Paths.get(hierarchyPath));
+            System.out.println((reused ? "Loaded contraction hierarchy from " : "Built contraction hierarchy -> ") + hierarchyPath);
+        }
+
+        try (PrintWriter outputWriter = new PrintWriter(args[3], "UTF-8")) {
+            long start = System.nanoTime();
+            int count = new BatchPlanner(graph, optimizer, threads, tours).run(args[2], outputWriter);
+            System.out.printf("Planned %d queries on %d threads in %.1f ms -> %s\n",
+                    count, threads, (System.nanoTime() - start) / 1e6, args[3]);
+            if (optimizer.getPlanCache() != null) {
+                System.out.println("Plan cache: " + optimizer.getPlanCache());
+            }
+            if (Metrics.isEnabled()) {
+                System.out.println("Metrics: " + Metrics.summary());
+            }
+        } catch (IOException e) {
+            System.out.println("Batch planning failed: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            System.out.println("Batch planning interrupted");
+        }
+    }
+}
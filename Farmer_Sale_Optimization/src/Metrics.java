@@ -0,0 +1,168 @@
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+// Process-wide phase timers, work counters and latency histograms for the planning pipeline.
+// A recording costs a couple of LongAdder updates, and counters are summed per call rather than
+// per inner-loop step, so it stays on by default. -Dfarmer.metrics=false or setEnabled(false)
+// reduces every call site to one volatile read.
+final class Metrics {
+    static final String OBJECT_NAME = "farmer:type=Metrics";
+
+    enum Phase {
+        LOAD("load"),
+        SHORTEST_PATH("shortestPath"),
+        ROUTE("route"),
+        HIERARCHY_BUILD("hierarchyBuild"),
+        CANDIDATES("candidates"),
+        KNAPSACK("knapsack"),
+        REPORT("report"),
+        PLAN("plan"),
+        TOUR("tour"),
+        COOPERATIVE("cooperative"),
+        SENSITIVITY("sensitivity"),
+        SEASON("season"),
+        PARETO("pareto"),
+        REQUEST("request");
+
+        final String label;
+
+        Phase(String label) {
+            this.label = label;
+        }
+    }
+
+    enum Counter {
+        DIJKSTRA_RUNS("dijkstraRuns"),
+        PATH_REPAIRS("pathRepairs"),
+        HEAP_PUSHES("heapPushes"),
+        SETTLED_NODES("settledNodes"),
+        CANDIDATES("candidates"),
+        DP_CELLS("dpCells"),
+        SEARCH_NODES("searchNodes"),
+        PLANS("plans"),
+        REQUESTS("requests"),
+        REJECTED_REQUESTS("rejectedRequests");
+
+        final String label;
+
+        Counter(String label) {
+            this.label = label;
+        }
+    }
+
+    private static volatile boolean enabled = !"false".equalsIgnoreCase(System.getProperty("farmer.metrics"));
+
+    private static final LatencyHistogram[] PHASES = new LatencyHistogram[Phase.values().length];
+    private static final LongAdder[] COUNTERS = new LongAdder[Counter.values().length];
+
+    static {
+        for (int i = 0; i < PHASES.length; i++) PHASES[i] = new LatencyHistogram();
+        for (int i = 0; i < COUNTERS.length; i++) COUNTERS[i] = new LongAdder();
+    }
+
+    private static ScheduledExecutorService logger;
+
+    private Metrics() {
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    public static void setEnabled(boolean on) {
+        enabled = on;
+    }
+
+    // Start of a timed phase; pass the result to stop(). Returns 0 (and skips the clock) when disabled.
+    public static long start() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    public static void stop(Phase phase, long start) {
+        if (start != 0 && enabled) {
+            PHASES[phase.ordinal()].record(System.nanoTime() - start);
+        }
+    }
+
+    public static void count(Counter counter, long delta) {
+        if (enabled) {
+            COUNTERS[counter.ordinal()].add(delta);
+        }
+    }
+
+    public static long counter(Counter counter) {
+        return COUNTERS[counter.ordinal()].sum();
+    }
+
+    public static LatencyHistogram histogram(Phase phase) {
+        return PHASES[phase.ordinal()];
+    }
+
+    public static void reset() {
+        for (LatencyHistogram histogram : PHASES) histogram.reset();
+        for (LongAdder counter : COUNTERS) counter.reset();
+    }
+
+    // One line with every counter and, per phase that ran, its count, p50, p99 and max
+    public static String summary() {
+        StringBuilder line = new StringBuilder();
+        for (Counter counter : Counter.values()) {
+            if (line.length() > 0) line.append(' ');
+            line.append(counter.label).append('=').append(counter(counter));
+        }
+        for (Phase phase : Phase.values()) {
+            LatencyHistogram histogram = histogram(phase);
+            if (histogram.count() == 0) continue;
+            line.append(String.format(" | %s n=%d p50=%s p99=%s max=%s", phase.label, histogram.count(),
+                    formatNanos(histogram.percentileNanos(0.50)), formatNanos(histogram.percentileNanos(0.99)),
+                    formatNanos(histogram.maxNanos())));
+        }
+        return line.toString();
+    }
+
+    private static String formatNanos(long nanos) {
+        if (nanos >= 10_000_000L) return String.format("%.0fms", nanos / 1e6);
+        if (nanos >= 10_000L) return String.format("%.0fus", nanos / 1e3);
+        return nanos + "ns";
+    }
+
+    // Registers the metrics MBean once; later calls are no-ops
+    public static synchronized void registerMBean() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (!server.isRegistered(name)) {
+                server.registerMBean(new MetricsMBean(), name);
+            }
+        } catch (JMException e) {
+            System.err.println("Could not register metrics MBean: " + e.getMessage());
+        }
+    }
+
+    // Prints summary() every periodSeconds from a daemon thread; a second call replaces the first
+    public static synchronized void startLogging(long periodSeconds, PrintStream out) {
+        stopLogging();
+        logger = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "metrics-log");
+            thread.setDaemon(true);
+            return thread;
+        });
+        logger.scheduleAtFixedRate(() -> {
+            if (enabled) out.println("metrics: " + summary());
+        }, periodSeconds, periodSeconds, TimeUnit.SECONDS);
+    }
+
+    public static synchronized void stopLogging() {
+        if (logger != null) {
+            logger.shutdownNow();
+            logger = null;
+        }
+    }
+}
@@ -0,0 +1,113 @@
+import java.util.ArrayList;
+import java.util.List;
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.InvalidAttributeValueException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanOperationInfo;
+import javax.management.MBeanParameterInfo;
+import javax.management.ReflectionException;
+
+// JMX view of Metrics: Enabled (writable), one attribute per counter, and per phase
+// <phase>Count, <phase>TotalMillis, <phase>P50Micros, <phase>P99Micros and <phase>MaxMicros.
+// The attribute set follows the enums, so new counters and phases show up without changes here.
+class MetricsMBean implements DynamicMBean {
+    private static final String ENABLED = "Enabled";
+    private static final String[] PHASE_STATS = {"Count", "TotalMillis", "P50Micros", "P99Micros", "MaxMicros"};
+
+    @Override
+    public Object getAttribute(String attribute) throws AttributeNotFoundException {
+        if (attribute.equals(ENABLED)) return Metrics.isEnabled();
+        for (Metrics.Counter counter : Metrics.Counter.values()) {
+            if (attribute.equals(counter.label)) return Metrics.counter(counter);
+        }
+        for (Metrics.Phase phase : Metrics.Phase.values()) {
+            if (!attribute.startsWith(phase.label)) continue;
+            LatencyHistogram histogram = Metrics.histogram(phase);
+            switch (attribute.substring(phase.label.length())) {
+                case "Count":
+                    return histogram.count();
+                case "TotalMillis":
+                    return histogram.totalNanos() / 1e6;
+                case "P50Micros":
+                    return histogram.percentileNanos(0.50) / 1e3;
+                case "P99Micros":
+                    return histogram.percentileNanos(0.99) / 1e3;
+                case "MaxMicros":
+                    return histogram.maxNanos() / 1e3;
+            }
+        }
+        throw new AttributeNotFoundException(attribute);
+    }
+
+    @Override
+    public void setAttribute(Attribute attribute) throws AttributeNotFoundException, InvalidAttributeValueException {
+        if (!attribute.getName().equals(ENABLED)) {
+            throw new AttributeNotFoundException(attribute.getName() + " is read-only");
+        }
+        if (!(attribute.getValue() instanceof Boolean)) {
+            throw new InvalidAttributeValueException("Enabled must be a boolean");
+        }
+        Metrics.setEnabled((Boolean) attribute.getValue());
+    }
+
+    @Override
+    public AttributeList getAttributes(String[] attributes) {
+        AttributeList list = new AttributeList();
+        for (String name : attributes) {
+            try {
+                list.add(new Attribute(name, getAttribute(name)));
+            } catch (AttributeNotFoundException e) {
+                // Unknown names are left out, as the DynamicMBean contract allows
+            }
+        }
+        return list;
+    }
+
+    @Override
+    public AttributeList setAttributes(AttributeList attributes) {
+        AttributeList set = new AttributeList();
+        for (Attribute attribute : attributes.asList()) {
+            try {
+                setAttribute(attribute);
+                set.add(attribute);
+            } catch (AttributeNotFoundException | InvalidAttributeValueException e) {
+                // Skipped, as the DynamicMBean contract allows
+            }
+        }
+        return set;
+    }
+
+    @Override
+    public Object invoke(String actionName, Object[] params, String[] signature) throws ReflectionException {
+        if (actionName.equals("reset")) {
+            Metrics.reset();
+            return null;
+        }
+        throw new ReflectionException(new NoSuchMethodException(actionName));
+    }
+
+    @Override
+    public MBeanInfo getMBeanInfo() {
+        List<MBeanAttributeInfo> attributes = new ArrayList<>();
+        attributes.add(new MBeanAttributeInfo(ENABLED, "boolean", "Whether metrics are recorded", true, true, true));
+        for (Metrics.Counter counter : Metrics.Counter.values()) {
+            attributes.add(new MBeanAttributeInfo(counter.label, "long", "Total " + counter.label, true, false, false));
+        }
+        for (Metrics.Phase phase : Metrics.Phase.values()) {
+            for (String stat : PHASE_STATS) {
+                String type = stat.equals("Count") ? "long" : "double";
+                attributes.add(new MBeanAttributeInfo(phase.label + stat, type,
+                        phase.label + " " + stat, true, false, false));
+            }
+        }
+        MBeanOperationInfo reset = new MBeanOperationInfo("reset", "Clears all counters and histograms",
+                new MBeanParameterInfo[0], "void", MBeanOperationInfo.ACTION);
+        return new MBeanInfo(getClass().getName(), "Planning pipeline metrics",
+                attributes.toArray(new MBeanAttributeInfo[0]), null,
+                new MBeanOperationInfo[]{reset}, null);
+    }
+}
@@ -0,0 +1,276 @@
+import java.util.Arrays;
+
+// Min-cost flow on a directed network with integer capacities and costs, by successive shortest
+// paths with node potentials (primal-dual). Bellman-Ford sets the first potentials, so edges may
+// have negative costs as long as there is no negative cycle. Each phase runs one Dijkstra on
+// reduced costs and pushes as much as fits along the cheapest path it found. Edges are collected
+// first and laid out by tail node when solving starts, so each scan of a node's residual edges
+// reads consecutive memory.
+class MinCostFlow {
+    private static final long INF = Long.MAX_VALUE / 4;
+
+    private final int nodes;
+    // Edges as added; the solver's residual arcs for edge i sit at slot[2i] (forward) and slot[2i + 1]
+    private int[] tail = new int[16];
+    private int[] head = new int[16];
+    private long[] capacity = new long[16];
+    private long[] edgeCost = new long[16];
+    private int edges;
+
+    // Residual network in compressed rows: node u's arcs are firstArc[u] until firstArc[u + 1]
+    private int[] firstArc;
+    private int[] target;
+    private int[] twin;
+    private long[] residual;
+    private long[] cost;
+    private int[] slot;
+
+    private final long[] potential;
+    private final long[] distance;
+    private final int[] parentArc;
+    private final boolean[] settled;
+    private final int[] queue;
+    private final DistanceHeap heap;
+    private int phases;
+
+    MinCostFlow(int nodes) {
+        this.nodes = nodes;
+        this.potential = new long[nodes];
+        this.distance = new long[nodes];
+        this.parentArc = new int[nodes];
+        this.settled = new boolean[nodes];
+        this.queue = new int[nodes];
+        this.heap = new DistanceHeap();
+    }
+
+    // Returns the edge id, for flow(); every edge must be added before minimizeCost
+    int addEdge(int from, int to, long edgeCapacity, long cost) {
+        if (firstArc != null) {
+            throw new IllegalStateException("Edges can't be added once the flow is solved");
+        }
+        if (edges == tail.length) {
+            int size = edges * 2;
+            tail = Arrays.copyOf(tail, size);
+            head = Arrays.copyOf(head, size);
+            capacity = Arrays.copyOf(capacity, size);
+            edgeCost = Arrays.copyOf(edgeCost, size);
+        }
+        tail[edges] = from;
+        head[edges] = to;
+        capacity[edges] = edgeCapacity;
+        edgeCost[edges] = cost;
+        return edges++;
+    }
+
+    // Counting sort of the forward and reverse arcs by the node they leave
+    private void layOut() {
+        firstArc = new int[nodes + 1];
+        for (int i = 0; i < edges; i++) {
+            firstArc[tail[i] + 1]++;
+            firstArc[head[i] + 1]++;
+        }
+        for (int u = 0; u < nodes; u++) {
+            firstArc[u + 1] += firstArc[u];
+        }
+        int[] fill = Arrays.copyOf(firstArc, nodes);
+        target = new int[2 * edges];
+        twin = new int[2 * edges];
+        residual = new long[2 * edges];
+        cost = new long[2 * edges];
+        slot = new int[2 * edges];
+        for (int i = 0; i < edges; i++) {
+            int forward = fill[tail[i]]++;
+            int backward = fill[head[i]]++;
+            target[forward] = head[i];
+            target[backward] = tail[i];
+            twin[forward] = backward;
+            twin[backward] = forward;
+            residual[forward] = capacity[i];
+            cost[forward] = edgeCost[i];
+            cost[backward] = -edgeCost[i];
+            slot[2 * i] = forward;
+            slot[2 * i + 1] = backward;
+        }
+    }
+
+    long flow(int edge) {
+        return firstArc == null ? 0 : capacity[edge] - residual[slot[2 * edge]];
+    }
+
+    int phases() {
+        return phases;
+    }
+
+    // Cost of an arc not in the network, reduced by the current potentials. After minimizeCost has
+    // stopped with the sink reachable, every residual arc has a non-negative reduced cost; an outside
+    // arc priced below zero is one that could still lower the total.
+    long reducedCost(int from, int to, long edgeCost) {
+        return edgeCost + potential[from] - potential[to];
+    }
+
+    // Sends flow from source to sink along cheapest paths, stopping once the cheapest remaining path
+    // costs zero or more. With negative costs for profit this maximizes profit rather than flow.
+    // Returns the total cost of the flow sent.
+    long minimizeCost(int source, int sink) {
+        if (firstArc == null) {
+            layOut();
+        }
+        initialPotentials(source);
+        long totalCost = 0;
+        while (shortestPaths(source, sink)) {
+            long pathCost = potential[sink] - potential[source];
+            if (pathCost >= 0) break;
+            phases++;
+            long pushed = INF;
+            for (int v = sink; v != source; v = target[twin[parentArc[v]]]) {
+                pushed = Math.min(pushed, residual[parentArc[v]]);
+            }
+            for (int v = sink; v != source; v = target[twin[parentArc[v]]]) {
+                residual[parentArc[v]] -= pushed;
+                residual[twin[parentArc[v]]] += pushed;
+            }
+            totalCost += pushed * pathCost;
+        }
+        return totalCost;
+    }
+
+    // Queue-based Bellman-Ford over edges with capacity; unreachable nodes keep potential 0,
+    // which is harmless since no augmenting path ever reaches them
+    private void initialPotentials(int source) {
+        long[] best = distance;
+        Arrays.fill(best, INF);
+        best[source] = 0;
+        boolean[] queued = new boolean[nodes];
+        int headSlot = 0;
+        int size = 1;
+        queue[0] = source;
+        queued[source] = true;
+        while (size > 0) {
+            int u = queue[headSlot];
+            headSlot = (headSlot + 1) % nodes;
+            size--;
+            queued[u] = false;
+            for (int e = firstArc[u]; e < firstArc[u + 1]; e++) {
+                int v = target[e];
+                if (residual[e] > 0 && best[u] + cost[e] < best[v]) {
+                    best[v] = best[u] + cost[e];
+                    if (!queued[v]) {
+                        queue[(headSlot + size) % nodes] = v;
+                        size++;
+                        queued[v] = true;
+                    }
+                }
+            }
+        }
+        for (int v = 0; v < nodes; v++) {
+            potential[v] = best[v] == INF ? 0 : best[v];
+        }
+    }
+
+    // Dijkstra on reduced costs, stopping once the sink is settled. Potentials of settled nodes move
+    // by their distance and all others by the sink's, which keeps every reduced cost non-negative.
+    private boolean shortestPaths(int source, int sink) {
+        Arrays.fill(distance, INF);
+        Arrays.fill(settled, false);
+        heap.clear();
+        distance[source] = 0;
+        heap.insertOrDecrease(source);
+        while (!heap.isEmpty()) {
+            int u = heap.pollMin();
+            long d = distance[u];
+            settled[u] = true;
+            if (u == sink) break;
+            for (int e = firstArc[u]; e < firstArc[u + 1]; e++) {
+                if (residual[e] <= 0) continue;
+                int v = target[e];
+                long candidate = d + cost[e] + potential[u] - potential[v];
+                if (candidate < distance[v]) {
+                    distance[v] = candidate;
+                    parentArc[v] = e;
+                    heap.insertOrDecrease(v);
+                }
+            }
+        }
+        if (!settled[sink]) return false;
+        long sinkDistance = distance[sink];
+        for (int v = 0; v < nodes; v++) {
+            potential[v] += settled[v] ? distance[v] : sinkDistance;
+        }
+        return true;
+    }
+
+    // Binary min-heap of node ids keyed by distance[], with decrease-key like IndexedMinHeap
+    // (whose keys are ints; reduced path costs here need longs)
+    private final class DistanceHeap {
+        private final int[] heap = new int[nodes];
+        private final int[] positions = new int[nodes]; // node -> heap slot, -1 when absent
+        private int size;
+
+        DistanceHeap() {
+            Arrays.fill(positions, -1);
+        }
+
+        void clear() {
+            for (int i = 0; i < size; i++) {
+                positions[heap[i]] = -1;
+            }
+            size = 0;
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        // Call after lowering distance[node]
+        void insertOrDecrease(int node) {
+            int slot = positions[node];
+            if (slot < 0) {
+                slot = size++;
+            }
+            siftUp(node, slot);
+        }
+
+        int pollMin() {
+            int min = heap[0];
+            positions[min] = -1;
+            size--;
+            if (size > 0) {
+                siftDown(heap[size]);
+            }
+            return min;
+        }
+
+        private void siftUp(int node, int slot) {
+            long key = distance[node];
+            while (slot > 0) {
+                int parentSlot = (slot - 1) >>> 1;
+                int parent = heap[parentSlot];
+                if (distance[parent] <= key) break;
+                heap[slot] = parent;
+                positions[parent] = slot;
+                slot = parentSlot;
+            }
+            heap[slot] = node;
+            positions[node] = slot;
+        }
+
+        private void siftDown(int node) {
+            long key = distance[node];
+            int slot = 0;
+            int half = size >>> 1;
+            while (slot < half) {
+                int child = 2 * slot + 1;
+                int right = child + 1;
+                if (right < size && distance[heap[right]] < distance[heap[child]]) {
+                    child = right;
+                }
+                if (key <= distance[heap[child]]) break;
+                heap[slot] = heap[child];
+                positions[heap[child]] = slot;
+                slot = child;
+            }
+            heap[slot] = node;
+            positions[node] = slot;
+        }
+    }
+}
@@ -0,0 +1,93 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// 0/1 knapsack with two objectives: maximize profit and minimize the longest delivery time among the
+// chosen items. Each capacity cell has a list of non-dominated (max days, profit) labels, every later
+// label earning strictly more. Items are taken by increasing delivery days, so adding one to any
+// label gives a label at exactly the item's days: only each cell's newest label can change, older
+// ones are final, and a label that doesn't beat the one before it is dropped. So the work per cell
+// is the same as the single-objective DP; only the full-capacity cell keeps its older labels, which
+// are the front. One decision bit per (item, cell) as in KnapsackSolver rebuilds any point, walking
+// back from the last item within its day limit.
+class ParetoKnapsack {
+    private static final double EPSILON = 1e-9;
+
+    // One point of the front: the best plan whose deliveries all take at most maxDays
+    static class Point {
+        final int maxDays;
+        final double profit;
+        final int[] selected; // item indices, latest delivery first
+
+        Point(int maxDays, double profit, int[] selected) {
+            this.maxDays = maxDays;
+            this.profit = profit;
+            this.selected = selected;
+        }
+    }
+
+    // Returns the front by increasing days and profit; it is empty when nothing is profitable
+    public static List<Point> solve(int[] weights, double[] profits, int[] days, int capacity) {
+        int n = weights.length;
+        int words = (capacity >>> 6) + 1;
+        if ((long) n * words > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Knapsack too large: " + n + " items x " + capacity + " cells");
+        }
+        for (int d : days) {
+            if (d < 0) {
+                throw new IllegalArgumentException("Negative delivery days: " + d);
+            }
+        }
+        Metrics.count(Metrics.Counter.DP_CELLS, (long) n * (capacity + 1));
+
+        // Stable sort of item indices by days, packed as days << 32 | index
+        long[] keys = new long[n];
+        for (int i = 0; i < n; i++) {
+            keys[i] = (long) days[i] << 32 | i;
+        }
+        Arrays.sort(keys);
+        int[] order = new int[n];
+        for (int k = 0; k < n; k++) {
+            order[k] = (int) keys[k];
+        }
+
+        double[] best = new double[capacity + 1]; // profit of each cell's newest label
+        long[] chosen = new long[n * words];
+        List<Point> front = new ArrayList<>();
+        double frontProfit = 0;
+        for (int k = 0; k < n; k++) {
+            int item = order[k];
+            int weight = weights[item];
+            double profit = profits[item];
+            int rowOffset = k * words;
+            // Downwards, so best[w - weight] is still the label from before this item
+            for (int w = capacity; w >= weight; w--) {
+                double includeItem = best[w - weight] + profit;
+                if (includeItem > best[w]) {
+                    best[w] = includeItem;
+                    chosen[rowOffset + (w >>> 6)] |= 1L << w;
+                }
+            }
+            // Close the label for this day count at the last item with it
+            int itemDays = days[item];
+            if ((k + 1 == n || days[order[k + 1]] != itemDays) && best[capacity] > frontProfit + EPSILON) {
+                frontProfit = best[capacity];
+                front.add(new Point(itemDays, frontProfit, select(weights, order, chosen, words, k, capacity)));
+            }
+        }
+        return front;
+    }
+
+    private static int[] select(int[] weights, int[] order, long[] chosen, int words, int last, int capacity) {
+        int[] selected = new int[last + 1];
+        int count = 0;
+        int w = capacity;
+        for (int k = last; k >= 0; k--) {
+            if ((chosen[k * words + (w >>> 6)] & (1L << w)) != 0) {
+                selected[count++] = order[k];
+                w -= weights[order[k]];
+            }
+        }
+        return Arrays.copyOf(selected, count);
+    }
+}
@@ -0,0 +1,142 @@
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+// Bounded LRU cache of optimization results with an optional time-to-live.
+// Keys carry the graph and catalog versions, so any data change makes older entries unreachable.
+// Each result pins the graph snapshot it was planned on, so the first put on a newer version drops
+// them all instead of leaving them to LRU. Results are immutable and shared between callers.
+class PlanCache {
+    static final class Key {
+        final String farmerState;
+        final int vehicleCapacity;
+        final long graphVersion;
+        final long dataVersion;
+
+        Key(String farmerState, int vehicleCapacity, long graphVersion, long dataVersion) {
+            this.farmerState = farmerState;
+            this.vehicleCapacity = vehicleCapacity;
+            this.graphVersion = graphVersion;
+            this.dataVersion = dataVersion;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key other = (Key) o;
+            return vehicleCapacity == other.vehicleCapacity
+                    && graphVersion == other.graphVersion
+                    && dataVersion == other.dataVersion
+                    && farmerState.equals(other.farmerState);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(farmerState, vehicleCapacity, graphVersion, dataVersion);
+        }
+    }
+
+    private static final class CachedPlan {
+        final ProfitOptimizer.OptimizationResult result;
+        final long createdNanos;
+
+        CachedPlan(ProfitOptimizer.OptimizationResult result, long createdNanos) {
+            this.result = result;
+            this.createdNanos = createdNanos;
+        }
+    }
+
+    private final int maxEntries;
+    private final long ttlNanos; // 0: entries never expire
+    private final LinkedHashMap<Key, CachedPlan> entries;
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long expirations;
+    private long graphVersion; // newest versions put so far
+    private long dataVersion;
+
+    PlanCache(int maxEntries, long ttlMillis) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("Cache size must be positive: " + maxEntries);
+        }
+        this.maxEntries = maxEntries;
+        this.ttlNanos = ttlMillis * 1_000_000L;
+        // Access order turns the map's iteration order into least-recently-used first
+        this.entries = new LinkedHashMap<Key, CachedPlan>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, CachedPlan> eldest) {
+                if (size() > PlanCache.this.maxEntries) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    public synchronized ProfitOptimizer.OptimizationResult get(Key key) {
+        CachedPlan entry = entries.get(key);
+        if (entry != null && ttlNanos > 0 && System.nanoTime() - entry.createdNanos > ttlNanos) {
+            entries.remove(key);
+            expirations++;
+            entry = null;
+        }
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return entry.result;
+    }
+
+    public synchronized void put(Key key, ProfitOptimizer.OptimizationResult result) {
+        // A plan that finished after a data change can never be looked up again
+        if (key.graphVersion < graphVersion || key.dataVersion < dataVersion) return;
+        if (key.graphVersion > graphVersion || key.dataVersion > dataVersion) {
+            graphVersion = key.graphVersion;
+            dataVersion = key.dataVersion;
+            Iterator<Key> keys = entries.keySet().iterator();
+            while (keys.hasNext()) {
+                Key cached = keys.next();
+                if (cached.graphVersion < graphVersion || cached.dataVersion < dataVersion) {
+                    keys.remove();
+                    evictions++;
+                }
+            }
+        }
+        entries.put(key, new CachedPlan(result, System.nanoTime()));
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    public synchronized long getExpirations() {
+        return expirations;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("%d/%d entries, %d hits, %d misses, %d evictions, %d expirations",
+                entries.size(), maxEntries, hits, misses, evictions, expirations);
+    }
+}
@@ -0,0 +1,367 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+
+// JSON planning service on the JDK's built-in HTTP server, for the field app.
+//   GET  /optimize?state=S&capacity=KG   plan for one farmer
+//   GET  /route?from=A&to=B              single-pair route
+//   POST /routes  from=A&to=B&distance=D add or change a route (query string or form body)
+//   GET  /states                         state names
+// The server's dispatcher thread only admits requests; each admitted one then runs on its own
+// virtual thread where the JDK has them, otherwise on a fixed pool. At most maxConcurrent requests
+// plan at once and up to maxQueued more wait for a slot; anything beyond that is turned away at
+// once with 503 and Retry-After instead of piling up.
+class PlanningServer {
+    private final StateGraph graph;
+    private final ProfitOptimizer optimizer;
+    private final int maxConcurrent;
+    private final Semaphore admitted; // running plus queued
+    private final Semaphore running;
+    private HttpServer server;
+    private ExecutorService executor;
+    private boolean virtualThreads;
+
+    PlanningServer(StateGraph graph, ProfitOptimizer optimizer, int maxConcurrent, int maxQueued) {
+        if (maxConcurrent <= 0 || maxQueued < 0) {
+            throw new IllegalArgumentException("Need maxConcurrent > 0 and maxQueued >= 0");
+        }
+        this.graph = graph;
+        this.optimizer = optimizer;
+        this.maxConcurrent = maxConcurrent;
+        this.admitted = new Semaphore(maxConcurrent + maxQueued);
+        this.running = new Semaphore(maxConcurrent);
+    }
+
+    // Binds to port (0 picks a free one) and starts serving
+    public void start(int port) throws IOException {
+        server = HttpServer.create(new InetSocketAddress(port), 0);
+        server.createContext("/optimize", new Endpoint("GET") {
+            @Override
+            String respond(Map<String, String> params) {
+                return optimize(params);
+            }
+        });
+        server.createContext("/route", new Endpoint("GET") {
+            @Override
+            String respond(Map<String, String> params) {
+                return route(params);
+            }
+        });
+        server.createContext("/routes", new Endpoint("POST") {
+            @Override
+            String respond(Map<String, String> params) {
+                return addRoute(params);
+            }
+        });
+        server.createContext("/states", new Endpoint("GET") {
+            @Override
+            String respond(Map<String, String> params) {
+                return states();
+            }
+        });
+        executor = requestExecutor();
+        server.start(); // no server executor: handlers start on the dispatcher thread
+    }
+
+    // Stops accepting requests, waiting up to delaySeconds for ones in progress
+    public void stop(int delaySeconds) {
+        server.stop(delaySeconds);
+        executor.shutdown();
+    }
+
+    public int port() {
+        return server.getAddress().getPort();
+    }
+
+    public boolean usesVirtualThreads() {
+        return virtualThreads;
+    }
+
+    // Executors.newVirtualThreadPerTaskExecutor() exists from JDK 21; this code still builds for
+    // Java 8, so it is looked up reflectively. Admission already bounds what the fallback pool's
+    // queue can hold.
+    private ExecutorService requestExecutor() {
+        try {
+            ExecutorService virtual = (ExecutorService) Executors.class
+                    .getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            virtualThreads = true;
+            return virtual;
+        } catch (ReflectiveOperationException e) {
+            virtualThreads = false;
+            return Executors.newFixedThreadPool(maxConcurrent);
+        }
+    }
+
+    private String optimize(Map<String, String> params) {
+        String state = required(params, "state");
+        int capacity = intParam(params, "capacity");
+        if (!graph.hasState(state)) {
+            throw new IllegalArgumentException("Invalid state: " + state);
+        }
+        ProfitOptimizer.OptimizationResult result = optimizer.optimizeDistribution(state, capacity, graph);
+
+        StringBuilder json = new StringBuilder();
+        json.append("{\"farmerState\":").append(quote(state))
+                .append(",\"vehicleCapacity\":").append(capacity)
+                .append(",\"graphVersion\":").append(result.graph.version)
+                .append(",\"dataVersion\":").append(result.catalog.version)
+                .append(",\"totalProfit\":").append(money(result.totalProfit()))
+                .append(",\"optimal\":").append(result.knapsackSolution.isOptimal())
+                .append(",\"plans\":[");
+        ShortestPathTree paths = result.graph.getShortestPathTree(state);
+        boolean first = true;
+        for (ProfitOptimizer.TransportPlan plan : result.plans.values()) {
+            if (!first) json.append(',');
+            first = false;
+            json.append("{\"destination\":").append(quote(plan.destination))
+                    .append(",\"estimatedDays\":").append(plan.estimatedDays)
+                    .append(",\"totalWeight\":").append(money(plan.totalWeight))
+                    .append(",\"profit\":").append(money(plan.totalProfit))
+                    .append(",\"distance\":").append(paths.distanceTo(plan.destination))
+                    .append(",\"route\":");
+            appendStrings(json, paths.pathTo(plan.destination));
+            json.append(",\"items\":{");
+            boolean firstItem = true;
+            for (Map.Entry<String, Integer> item : plan.itemQuantities.entrySet()) {
+                if (!firstItem) json.append(',');
+                firstItem = false;
+                json.append(quote(item.getKey())).append(':').append(item.getValue());
+            }
+            json.append("}}");
+        }
+        return json.append("]}").toString();
+    }
+
+    private String route(Map<String, String> params) {
+        String from = required(params, "from");
+        String to = required(params, "to");
+        Route route = graph.findRoute(from, to);
+
+        StringBuilder json = new StringBuilder();
+        json.append("{\"from\":").append(quote(from))
+                .append(",\"to\":").append(quote(to))
+                .append(",\"reachable\":").append(!route.path.isEmpty())
+                .append(",\"distance\":").append(route.path.isEmpty() ? -1 : route.distance)
+                .append(",\"path\":");
+        appendStrings(json, route.path);
+        json.append(",\"method\":").append(quote(route.method))
+                .append(",\"settled\":").append(route.settled);
+        return json.append('}').toString();
+    }
+
+    private String addRoute(Map<String, String> params) {
+        String from = required(params, "from");
+        String to = required(params, "to");
+        int distance = intParam(params, "distance");
+        if (distance < 0) {
+            throw new IllegalArgumentException("Distance must not be negative: " + distance);
+        }
+        graph.addRoute(from, to, distance);
+        return "{\"from\":" + quote(from) + ",\"to\":" + quote(to) + ",\"distance\":" + distance
+                + ",\"graphVersion\":" + graph.getVersion() + "}";
+    }
+
+    private String states() {
+        StringBuilder json = new StringBuilder("{\"states\":");
+        appendStrings(json, graph.snapshot().stateNames());
+        return json.append('}').toString();
+    }
+
+    // Admission, method check, parameter parsing and error mapping shared by every endpoint
+    private abstract class Endpoint implements HttpHandler {
+        private final String method;
+
+        Endpoint(String method) {
+            this.method = method;
+        }
+
+        abstract String respond(Map<String, String> params);
+
+        // Runs on the dispatcher thread, so it must never block
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            Metrics.count(Metrics.Counter.REQUESTS, 1);
+            if (!admitted.tryAcquire()) {
+                reject(exchange, "Server busy; " + maxConcurrent + " requests running and the queue is full");
+                return;
+            }
+            try {
+                executor.execute(() -> run(exchange));
+            } catch (RejectedExecutionException e) {
+                admitted.release();
+                reject(exchange, "Server shutting down");
+            }
+        }
+
+        private void run(HttpExchange exchange) {
+            try {
+                running.acquire();
+                long start = Metrics.start();
+                try {
+                    serve(exchange);
+                } finally {
+                    Metrics.stop(Metrics.Phase.REQUEST, start);
+                    running.release();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (IOException e) {
+                // The client went away; nothing left to tell it
+            } finally {
+                exchange.close();
+                admitted.release();
+            }
+        }
+
+        private void reject(HttpExchange exchange, String message) throws IOException {
+            Metrics.count(Metrics.Counter.REJECTED_REQUESTS, 1);
+            exchange.getResponseHeaders().set("Retry-After", "1");
+            send(exchange, 503, error(message));
+        }
+
+        private void serve(HttpExchange exchange) throws IOException {
+            if (!exchange.getRequestMethod().equalsIgnoreCase(method)) {
+                exchange.getResponseHeaders().set("Allow", method);
+                send(exchange, 405, error("Use " + method));
+                return;
+            }
+            String body;
+            int status = 200;
+            try {
+                Map<String, String> params = parseQuery(exchange.getRequestURI().getRawQuery());
+                if (method.equals("POST")) {
+                    params.putAll(parseQuery(readBody(exchange.getRequestBody())));
+                }
+                body = respond(params);
+            } catch (IllegalArgumentException e) {
+                status = 400;
+                body = error(e.getMessage());
+            } catch (RuntimeException e) {
+                status = 500;
+                body = error(String.valueOf(e));
+            }
+            send(exchange, status, body);
+        }
+    }
+
+    private static void send(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static String readBody(InputStream in) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        for (int n; (n = in.read(buffer)) > 0; ) {
+            body.write(buffer, 0, n);
+        }
+        return new String(body.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private static Map<String, String> parseQuery(String query) {
+        Map<String, String> params = new HashMap<>();
+        if (query == null || query.isEmpty()) return params;
+        for (String pair : query.split("&")) {
+            if (pair.isEmpty()) continue;
+            int equals = pair.indexOf('=');
+            String key = equals < 0 ? pair : pair.substring(0, equals);
+            String value = equals < 0 ? "" : pair.substring(equals + 1);
+            params.put(decode(key), decode(value));
+        }
+        return params;
+    }
+
+    private static String decode(String s) {
+        try {
+            return URLDecoder.decode(s, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String required(Map<String, String> params, String name) {
+        String value = params.get(name);
+        if (value == null || value.trim().isEmpty()) {
+            throw new IllegalArgumentException("Missing parameter: " + name);
+        }
+        return value.trim();
+    }
+
+    private static int intParam(Map<String, String> params, String name) {
+        String value = required(params, name);
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Parameter " + name + " is not a whole number: " + value);
+        }
+    }
+
+    private static String error(String message) {
+        return "{\"error\":" + quote(message) + "}";
+    }
+
+    private static String money(double value) {
+        return String.format(Locale.ROOT, "%.2f", value);
+    }
+
+    private static void appendStrings(StringBuilder json, List<String> values) {
+        json.append('[');
+        for (int i = 0; i < values.size(); i++) {
+            if (i > 0) json.append(',');
+            json.append(quote(values.get(i)));
+        }
+        json.append(']');
+    }
+
+    private static String quote(String s) {
+        StringBuilder quoted = new StringBuilder(s.length() + 2).append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"':
+                    quoted.append("\\\"");
+                    break;
+                case '\\':
+                    quoted.append("\\\\");
+                    break;
+                case '\n':
+                    quoted.append("\\n");
+                    break;
+                case '\r':
+                    quoted.append("\\r");
+                    break;
+                case '\t':
+                    quoted.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        quoted.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        quoted.append(c);
+                    }
+            }
+        }
+        return quoted.append('"').toString();
+    }
+}
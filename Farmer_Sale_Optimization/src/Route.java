@@ -0,0 +1,16 @@
+import java.util.List;
+
+// Result of one single-pair route query
+class Route {
+    final List<String> path;  // empty when the target is unreachable
+    final int distance;       // CompactGraph.UNREACHABLE when the target is unreachable
+    final int settled;        // nodes taken off the search queues
+    final String method;      // which search answered, e.g. "A*"
+
+    Route(List<String> path, int distance, int settled, String method) {
+        this.path = path;
+        this.distance = distance;
+        this.settled = settled;
+        this.method = method;
+    }
+}
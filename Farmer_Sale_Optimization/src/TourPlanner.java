@@ -0,0 +1,188 @@
+import java.util.Arrays;
+
+// Orders the stops of a single truck trip. The trip is an open path: it starts at node 0 (the
+// farmer) and ends at the last stop, so there is no return leg. Short trips are solved exactly by
+// dynamic programming over subsets of stops. Longer ones start from nearest-neighbour construction,
+// then 2-opt (reverse a stretch of stops) and Or-opt (move a run of one to three stops elsewhere,
+// either way round) moves are applied until none shortens the trip or the deadline passes; that
+// local search can stop short of the best order. Distances must be symmetric, as the route graph
+// is undirected.
+final class TourPlanner {
+    private static final int MAX_SEGMENT = 3;
+    // The farmer plus up to 11 stops: 2^11 subsets x 11 x 11 steps, well under a millisecond
+    private static final int EXACT_LIMIT = 12;
+
+    private TourPlanner() {
+    }
+
+    // distances[i][j] between the farmer (0) and stops 1..n-1; returns the visiting order starting with 0
+    static int[] plan(int[][] distances, long deadlineNanos) {
+        if (distances.length <= EXACT_LIMIT) {
+            return exact(distances);
+        }
+        int[] tour = nearestNeighbour(distances);
+        boolean improved = true;
+        while (improved && System.nanoTime() < deadlineNanos) {
+            improved = twoOpt(tour, distances, deadlineNanos);
+            improved |= orOpt(tour, distances, deadlineNanos);
+        }
+        return tour;
+    }
+
+    static long length(int[] tour, int[][] distances) {
+        long total = 0;
+        for (int i = 0; i + 1 < tour.length; i++) {
+            total += distances[tour[i]][tour[i + 1]];
+        }
+        return total;
+    }
+
+    static int[] nearestNeighbour(int[][] distances) {
+        int n = distances.length;
+        int[] tour = new int[n];
+        boolean[] visited = new boolean[n];
+        visited[0] = true;
+        for (int i = 1; i < n; i++) {
+            int from = tour[i - 1];
+            int best = -1;
+            for (int candidate = 1; candidate < n; candidate++) {
+                if (!visited[candidate] && (best < 0 || distances[from][candidate] < distances[from][best])) {
+                    best = candidate;
+                }
+            }
+            tour[i] = best;
+            visited[best] = true;
+        }
+        return tour;
+    }
+
+    // Held-Karp for an open path: best[mask * stops + j] is the shortest trip from the farmer
+    // through the stops in mask that ends at stop j (stop j is node j + 1)
+    private static int[] exact(int[][] d) {
+        int stops = d.length - 1;
+        int[] tour = new int[d.length];
+        if (stops <= 1) {
+            if (stops == 1) tour[1] = 1;
+            return tour;
+        }
+        int subsets = 1 << stops;
+        long[] best = new long[subsets * stops];
+        int[] previous = new int[subsets * stops];
+        Arrays.fill(best, Long.MAX_VALUE);
+        for (int j = 0; j < stops; j++) {
+            best[(1 << j) * stops + j] = d[0][j + 1];
+        }
+        for (int mask = 1; mask < subsets; mask++) {
+            for (int j = 0; j < stops; j++) {
+                long length = best[mask * stops + j];
+                if (length == Long.MAX_VALUE) continue;
+                for (int k = 0; k < stops; k++) {
+                    if ((mask & (1 << k)) != 0) continue;
+                    int cell = (mask | 1 << k) * stops + k;
+                    long next = length + d[j + 1][k + 1];
+                    if (next < best[cell]) {
+                        best[cell] = next;
+                        previous[cell] = j;
+                    }
+                }
+            }
+        }
+
+        int mask = subsets - 1;
+        int end = 0;
+        for (int j = 1; j < stops; j++) {
+            if (best[mask * stops + j] < best[mask * stops + end]) end = j;
+        }
+        for (int i = stops; i >= 1; i--) {
+            tour[i] = end + 1;
+            int before = previous[mask * stops + end];
+            mask &= ~(1 << end);
+            end = before;
+        }
+        return tour;
+    }
+
+    // First-improvement pass; reversing tour[i..j] swaps edges (i-1, i) and (j, j+1) for
+    // (i-1, j) and (i, j+1). At the end of the path there is no (j, j+1) edge to swap.
+    private static boolean twoOpt(int[] tour, int[][] d, long deadlineNanos) {
+        int last = tour.length - 1;
+        boolean improved = false;
+        for (int i = 1; i < last; i++) {
+            if (System.nanoTime() >= deadlineNanos) break;
+            int before = tour[i - 1];
+            int first = tour[i];
+            for (int j = i + 1; j <= last; j++) {
+                int end = tour[j];
+                long delta = (long) d[before][end] - d[before][first];
+                if (j < last) {
+                    int after = tour[j + 1];
+                    delta += (long) d[first][after] - d[end][after];
+                }
+                if (delta < 0) {
+                    reverse(tour, i, j);
+                    first = tour[i];
+                    improved = true;
+                }
+            }
+        }
+        return improved;
+    }
+
+    // Moves tour[i..i+len-1] between tour[p] and tour[p+1], or after the last stop
+    private static boolean orOpt(int[] tour, int[][] d, long deadlineNanos) {
+        int last = tour.length - 1;
+        boolean improved = false;
+        for (int len = 1; len <= MAX_SEGMENT; len++) {
+            for (int i = 1; i + len - 1 <= last; i++) {
+                if (System.nanoTime() >= deadlineNanos) return improved;
+                int segmentEnd = i + len - 1;
+                int before = tour[i - 1];
+                int first = tour[i];
+                int end = tour[segmentEnd];
+                long removeDelta = -(long) d[before][first];
+                if (segmentEnd < last) {
+                    int after = tour[segmentEnd + 1];
+                    removeDelta += (long) d[before][after] - d[end][after];
+                }
+
+                for (int p = 0; p <= last; p++) {
+                    if (p >= i - 1 && p <= segmentEnd) continue;
+                    int x = tour[p];
+                    int y = p < last ? tour[p + 1] : -1;
+                    long forward = (long) d[x][first] + (y < 0 ? 0 : (long) d[end][y] - d[x][y]);
+                    long reversed = (long) d[x][end] + (y < 0 ? 0 : (long) d[first][y] - d[x][y]);
+                    if (removeDelta + Math.min(forward, reversed) < 0) {
+                        move(tour, i, len, p, reversed < forward);
+                        improved = true;
+                        break;
+                    }
+                }
+            }
+        }
+        return improved;
+    }
+
+    private static void move(int[] tour, int i, int len, int p, boolean reversed) {
+        int[] segment = new int[len];
+        for (int k = 0; k < len; k++) {
+            segment[k] = tour[reversed ? i + len - 1 - k : i + k];
+        }
+        if (p < i) {
+            // Shift tour[p+1..i-1] right by len, then drop the segment in after p
+            System.arraycopy(tour, p + 1, tour, p + 1 + len, i - p - 1);
+            System.arraycopy(segment, 0, tour, p + 1, len);
+        } else {
+            // Shift tour[i+len..p] left by len, then drop the segment in after the shifted run
+            System.arraycopy(tour, i + len, tour, i, p - i - len + 1);
+            System.arraycopy(segment, 0, tour, p - len + 1, len);
+        }
+    }
+
+    private static void reverse(int[] tour, int i, int j) {
+        while (i < j) {
+            int t = tour[i];
+            tour[i++] = tour[j];
+            tour[j--] = t;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BranchAndBoundEngineTest {
+    private static final long BUDGET_NANOS = 2_000_000_000L;
+
+    @Test
+    void matchesTheDpOnSmallProblems() {
+        Random random = new Random(7);
+        for (int trial = 0; trial < 500; trial++) {
+            int n = random.nextInt(25);
+            int capacity = random.nextInt(200);
+            int[] weights = new int[n];
+            double[] profits = new double[n];
+            for (int i = 0; i < n; i++) {
+                weights[i] = random.nextInt(60);
+                profits[i] = random.nextInt(100) - 10;
+            }
+
+            KnapsackSolution solution = new BranchAndBoundEngine(BUDGET_NANOS).solve(weights, profits, capacity);
+            double optimum = KnapsackSolution.totalProfit(KnapsackSolver.solve(weights, profits, capacity), profits);
+            assertEquals(optimum, solution.profit, 1e-6);
+            assertFeasible(solution, weights, profits, capacity);
+        }
+    }
+
+    // One search level per item: a recursive search overflowed the stack at these sizes
+    @Test
+    void solvesTensOfThousandsOfItems() {
+        for (int n : new int[] {10_000, 20_000}) {
+            int[] weights = new int[n];
+            double[] profits = new double[n];
+            Random random = new Random(n);
+            for (int i = 0; i < n; i++) {
+                weights[i] = 1 + random.nextInt(1000);
+                profits[i] = 1 + random.nextInt(1000);
+            }
+            int capacity = n * 100;
+
+            KnapsackSolution solution = new BranchAndBoundEngine(BUDGET_NANOS).solve(weights, profits, capacity);
+            assertFeasible(solution, weights, profits, capacity);
+            assertTrue(solution.profit > 0);
+        }
+    }
+
+    // n x capacity far past the DP's limit, so the auto engine goes to branch and bound
+    @Test
+    void autoEngineHandlesPlansTooLargeForTheDp() {
+        int n = 20_000;
+        int[] weights = new int[n];
+        double[] profits = new double[n];
+        Random random = new Random(11);
+        for (int i = 0; i < n; i++) {
+            weights[i] = 1 + random.nextInt(100_000);
+            profits[i] = 1 + random.nextInt(1000);
+        }
+        int capacity = 500_000_000;
+
+        KnapsackSolution solution = new AutoKnapsackEngine(BUDGET_NANOS, false, 0.01).solve(weights, profits, capacity);
+        assertFeasible(solution, weights, profits, capacity);
+        assertTrue(solution.optimalityGap() <= 0.01);
+    }
+
+    private static void assertFeasible(KnapsackSolution solution, int[] weights, double[] profits, int capacity) {
+        long weight = 0;
+        for (int index : solution.selected) {
+            weight += weights[index];
+        }
+        assertTrue(weight <= capacity, "overloaded: " + weight + " > " + capacity);
+        assertEquals(KnapsackSolution.totalProfit(solution.selected, profits), solution.profit, 1e-6);
+        assertTrue(solution.upperBound >= solution.profit);
+    }
+}
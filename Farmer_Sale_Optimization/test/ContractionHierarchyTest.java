@@ -0,0 +1,108 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ContractionHierarchyTest {
+    @Test
+    void routesMatchDijkstra() {
+        Random random = new Random(17);
+        for (int trial = 0; trial < 200; trial++) {
+            int n = 1 + random.nextInt(40);
+            // Few distinct weights so ties and redundant shortcuts are common; sparse graphs are
+            // often disconnected
+            Map<String, Map<String, Integer>> routes =
+                    randomRoutes(random, n, random.nextInt(3 * n), 1 + random.nextInt(20));
+            CompactGraph graph = CompactGraph.build(names(n), routes);
+            assertMatchesDijkstra(ContractionHierarchy.build(graph), graph, routes);
+        }
+    }
+
+    @Test
+    void savedHierarchyLoadsOnlyForTheSameRoutes(@TempDir Path directory) throws IOException {
+        Random random = new Random(23);
+        int n = 60;
+        Map<String, Map<String, Integer>> routes = randomRoutes(random, n, 150, 500);
+        CompactGraph graph = CompactGraph.build(names(n), routes);
+        Path file = directory.resolve("routes.ch");
+        ContractionHierarchy.build(graph).save(file);
+
+        assertMatchesDijkstra(ContractionHierarchy.load(file, graph), graph, routes);
+
+        // One route a kilometre longer gives a different fingerprint
+        String from = routes.keySet().iterator().next();
+        String to = routes.get(from).keySet().iterator().next();
+        routes.get(from).put(to, routes.get(from).get(to) + 1);
+        routes.get(to).put(from, routes.get(from).get(to));
+        CompactGraph changed = CompactGraph.build(names(n), routes);
+        IOException stale = assertThrows(IOException.class, () -> ContractionHierarchy.load(file, changed));
+        assertTrue(stale.getMessage().contains("different routes"), stale.getMessage());
+
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[bytes.length / 2] ^= 1;
+        Files.write(file, bytes);
+        IOException corrupt = assertThrows(IOException.class, () -> ContractionHierarchy.load(file, graph));
+        assertTrue(corrupt.getMessage().contains("Checksum mismatch"), corrupt.getMessage());
+    }
+
+    private static String[] names(int n) {
+        String[] names = new String[n];
+        for (int v = 0; v < n; v++) {
+            names[v] = "S" + v;
+        }
+        return names;
+    }
+
+    private static Map<String, Map<String, Integer>> randomRoutes(Random random, int n, int count, int maxWeight) {
+        Map<String, Map<String, Integer>> routes = new HashMap<>();
+        for (int v = 0; v < n; v++) {
+            routes.put("S" + v, new HashMap<>());
+        }
+        for (int r = 0; r < count && n > 1; r++) {
+            int from = random.nextInt(n);
+            int to = (from + 1 + random.nextInt(n - 1)) % n;
+            int weight = 1 + random.nextInt(maxWeight);
+            routes.get("S" + from).put("S" + to, weight);
+            routes.get("S" + to).put("S" + from, weight);
+        }
+        return routes;
+    }
+
+    private static void assertMatchesDijkstra(ContractionHierarchy hierarchy, CompactGraph graph,
+                                              Map<String, Map<String, Integer>> routes) {
+        for (int source = 0; source < graph.size(); source++) {
+            ShortestPathTree tree = graph.shortestPathTree(source);
+            for (int target = 0; target < graph.size(); target++) {
+                Route route = hierarchy.route(source, target);
+                int distance = tree.distanceTo(graph.nameOf(target));
+                assertEquals(distance, route.distance, graph.nameOf(source) + " -> " + graph.nameOf(target));
+                if (distance == CompactGraph.UNREACHABLE) {
+                    assertTrue(route.path.isEmpty());
+                    continue;
+                }
+
+                // Ties may unpack to a different path; it must still use real routes and add up
+                List<String> path = route.path;
+                assertEquals(graph.nameOf(source), path.get(0));
+                assertEquals(graph.nameOf(target), path.get(path.size() - 1));
+                int length = 0;
+                for (int i = 1; i < path.size(); i++) {
+                    Integer leg = routes.get(path.get(i - 1)).get(path.get(i));
+                    assertTrue(leg != null, "no route " + path.get(i - 1) + " -> " + path.get(i));
+                    length += leg;
+                }
+                assertEquals(distance, length, "path " + path);
+            }
+        }
+    }
+}
@@ -0,0 +1,48 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CooperativePlanTest {
+    // The pooled flow ships three 10 kg units from two 15 kg trucks; only two fit, and the 5 kg
+    // left on each truck must still go to the open demand for the 5 kg food
+    @Test
+    void reoffersCapacityTheSplitLeavesOver() {
+        StateGraph graph = new StateGraph();
+        graph.addState("A", 20.0, 75.0);
+        graph.addState("B", 21.0, 76.0);
+        graph.addRoute("A", "B", 100);
+        ProfitOptimizer optimizer = new ProfitOptimizer();
+        optimizer.addFoodItem(new FoodItem("X", 500.0, 4, 10.0, 10.0, 0.015));
+        optimizer.addFoodItem(new FoodItem("Y", 100.0, 4, 10.0, 5.0, 0.015));
+        optimizer.addStateDemand("B", "X", 3);
+        optimizer.addStateDemand("B", "Y", 5);
+        List<ProfitOptimizer.Farmer> farmers = Arrays.asList(
+                new ProfitOptimizer.Farmer("F1", "A", 15), new ProfitOptimizer.Farmer("F2", "A", 15));
+
+        ProfitOptimizer.CooperativePlan plan = optimizer.planCooperative(farmers, graph);
+
+        Map<String, Integer> shipped = new HashMap<>();
+        double profit = 0;
+        for (ProfitOptimizer.Farmer farmer : farmers) {
+            double kg = 0;
+            for (ProfitOptimizer.TransportPlan transport : plan.plans.get(farmer.id).values()) {
+                kg += transport.totalWeight;
+                profit += transport.totalProfit;
+                for (Map.Entry<String, Integer> item : transport.itemQuantities.entrySet()) {
+                    shipped.merge(item.getKey(), item.getValue(), Integer::sum);
+                }
+            }
+            assertEquals(15.0, kg, 1e-9, farmer.id + " should be full");
+        }
+        assertEquals(2, (int) shipped.get("X"));
+        assertEquals(2, (int) shipped.get("Y"));
+        assertEquals(profit, plan.totalProfit, 1e-6);
+        assertTrue(plan.totalProfit < plan.flowProfit);
+    }
+}
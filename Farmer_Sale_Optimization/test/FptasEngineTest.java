@@ -0,0 +1,59 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FptasEngineTest {
+    @Test
+    void staysWithinEpsilonOfTheDp() {
+        Random random = new Random(3);
+        for (int trial = 0; trial < 300; trial++) {
+            int n = random.nextInt(40);
+            int capacity = random.nextInt(300);
+            int[] weights = new int[n];
+            double[] profits = new double[n];
+            for (int i = 0; i < n; i++) {
+                weights[i] = random.nextInt(80);
+                profits[i] = random.nextDouble() * 1000 - 50;
+            }
+
+            KnapsackSolution solution = new FptasEngine(0.1).solve(weights, profits, capacity);
+            double optimum = KnapsackSolution.totalProfit(KnapsackSolver.solve(weights, profits, capacity), profits);
+            assertFeasible(solution, weights, profits, capacity);
+            assertTrue(solution.profit >= 0.9 * optimum - 1e-6, solution.profit + " vs " + optimum);
+            assertTrue(solution.upperBound >= optimum - 1e-6);
+        }
+    }
+
+    // Even epsilon 0.99 needs about n^3 table bits here; this ran out of memory before the cap
+    // was enforced after coarsening
+    @Test
+    void fallsBackToGreedyWhenTheTableCannotFit() {
+        int n = 5_000;
+        int[] weights = new int[n];
+        double[] profits = new double[n];
+        Random random = new Random(5);
+        for (int i = 0; i < n; i++) {
+            weights[i] = 1 + random.nextInt(10_000);
+            profits[i] = 1 + random.nextDouble() * 10_000;
+        }
+        int capacity = 5_000_000;
+
+        KnapsackSolution solution = new FptasEngine(0.01).solve(weights, profits, capacity);
+        assertFeasible(solution, weights, profits, capacity);
+        assertTrue(solution.profit > 0);
+        assertTrue(solution.optimalityGap() < 0.5);
+    }
+
+    private static void assertFeasible(KnapsackSolution solution, int[] weights, double[] profits, int capacity) {
+        long weight = 0;
+        for (int index : solution.selected) {
+            weight += weights[index];
+        }
+        assertTrue(weight <= capacity, "overloaded: " + weight + " > " + capacity);
+        assertEquals(KnapsackSolution.totalProfit(solution.selected, profits), solution.profit, 1e-6);
+        assertTrue(solution.upperBound >= solution.profit);
+    }
+}
@@ -0,0 +1,71 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ParetoKnapsackTest {
+    // Only each cell's newest label is kept, which is enough because items go in by delivery
+    // days; every point must still be the best plan within its day limit
+    @Test
+    void everyPointIsTheBestPlanWithinItsDays() {
+        Random random = new Random(31);
+        for (int trial = 0; trial < 500; trial++) {
+            int n = random.nextInt(25);
+            int capacity = random.nextInt(200);
+            int[] weights = new int[n];
+            double[] profits = new double[n];
+            int[] days = new int[n];
+            for (int i = 0; i < n; i++) {
+                weights[i] = random.nextInt(60);
+                profits[i] = random.nextInt(100) - 10;
+                days[i] = 1 + random.nextInt(7);
+            }
+
+            List<ParetoKnapsack.Point> front = ParetoKnapsack.solve(weights, profits, days, capacity);
+            double previous = 0;
+            for (ParetoKnapsack.Point point : front) {
+                assertTrue(point.profit > previous, "profits must strictly increase along the front");
+                previous = point.profit;
+                assertEquals(bestWithin(weights, profits, days, capacity, point.maxDays), point.profit, 1e-6);
+
+                long weight = 0;
+                for (int index : point.selected) {
+                    assertTrue(days[index] <= point.maxDays);
+                    weight += weights[index];
+                }
+                assertTrue(weight <= capacity);
+                assertEquals(point.profit, KnapsackSolution.totalProfit(point.selected, profits), 1e-6);
+            }
+
+            // Nothing missing: at every day limit the best plan is the last point within it
+            for (int limit = 1; limit <= 7; limit++) {
+                double expected = 0;
+                for (ParetoKnapsack.Point point : front) {
+                    if (point.maxDays <= limit) expected = point.profit;
+                }
+                assertEquals(expected, bestWithin(weights, profits, days, capacity, limit), 1e-6);
+            }
+        }
+    }
+
+    private static double bestWithin(int[] weights, double[] profits, int[] days, int capacity, int maxDays) {
+        int count = 0;
+        for (int d : days) {
+            if (d <= maxDays) count++;
+        }
+        int[] subsetWeights = new int[count];
+        double[] subsetProfits = new double[count];
+        int k = 0;
+        for (int i = 0; i < days.length; i++) {
+            if (days[i] <= maxDays) {
+                subsetWeights[k] = weights[i];
+                subsetProfits[k++] = profits[i];
+            }
+        }
+        return KnapsackSolution.totalProfit(KnapsackSolver.solve(subsetWeights, subsetProfits, capacity),
+                subsetProfits);
+    }
+}
@@ -0,0 +1,26 @@
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PlanCacheTest {
+    // Old entries pin whole graph snapshots, so a newer version must drop them on put rather
+    // than wait for LRU eviction
+    @Test
+    void dropsEntriesForOlderVersionsOnPut() {
+        PlanCache cache = new PlanCache(100, 0);
+        cache.put(new PlanCache.Key("Punjab", 1000, 1, 1), null);
+        cache.put(new PlanCache.Key("Kerala", 1000, 1, 1), null);
+        assertEquals(2, cache.size());
+
+        cache.put(new PlanCache.Key("Punjab", 1000, 2, 1), null);
+        assertEquals(1, cache.size());
+        cache.put(new PlanCache.Key("Punjab", 2000, 2, 2), null);
+        assertEquals(1, cache.size());
+        assertEquals(3, cache.getEvictions());
+
+        // A plan finishing after the data changed is unreachable and not stored
+        cache.put(new PlanCache.Key("Kerala", 1000, 2, 1), null);
+        cache.put(new PlanCache.Key("Kerala", 1000, 3, 1), null);
+        assertEquals(1, cache.size());
+    }
+}
@@ -0,0 +1,95 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ShortestPathRepairTest {
+    private static final int STATES = 12;
+
+    // Cached trees are patched in place of a rebuild when a route is added or shortened, and
+    // dropped when one gets longer; either way every lookup must match a fresh Dijkstra
+    @Test
+    void cachedTreesMatchAFreshSearchAfterEveryRouteEdit() {
+        Random random = new Random(13);
+        for (int trial = 0; trial < 20; trial++) {
+            StateGraph graph = new StateGraph();
+            String[] names = new String[STATES];
+            Map<String, Map<String, Integer>> routes = new HashMap<>();
+            for (int v = 0; v < STATES; v++) {
+                names[v] = "S" + v;
+                graph.addState(names[v], random.nextDouble() * 10, random.nextDouble() * 10);
+                routes.put(names[v], new HashMap<>());
+            }
+            for (int r = 0; r < STATES; r++) {
+                addRoute(graph, routes, names, random, 1 + random.nextInt(500));
+            }
+
+            for (int edit = 0; edit < 30; edit++) {
+                warm(graph, names);
+                int before = graph.snapshot().shortestPathTrees().size();
+                boolean shorter = random.nextBoolean();
+                int from = random.nextInt(STATES);
+                int to = (from + 1 + random.nextInt(STATES - 1)) % STATES;
+                Integer current = routes.get(names[from]).get(names[to]);
+                int distance = current == null ? 1 + random.nextInt(500)
+                        : shorter ? Math.max(1, current - 1 - random.nextInt(current)) : current + 1 + random.nextInt(300);
+                graph.addRoute(names[from], names[to], distance);
+                routes.get(names[from]).put(names[to], distance);
+                routes.get(names[to]).put(names[from], distance);
+
+                if (current == null || distance < current) {
+                    assertEquals(before, graph.snapshot().shortestPathTrees().size(), "trees should be repaired");
+                }
+                assertMatchesFreshSearch(graph, names, routes);
+            }
+        }
+    }
+
+    private static void addRoute(StateGraph graph, Map<String, Map<String, Integer>> routes, String[] names,
+                                 Random random, int distance) {
+        int from = random.nextInt(STATES);
+        int to = (from + 1 + random.nextInt(STATES - 1)) % STATES;
+        graph.addRoute(names[from], names[to], distance);
+        routes.get(names[from]).put(names[to], distance);
+        routes.get(names[to]).put(names[from], distance);
+    }
+
+    private static void warm(StateGraph graph, String[] names) {
+        GraphSnapshot snapshot = graph.snapshot();
+        for (String name : names) {
+            snapshot.getShortestPathTree(name);
+        }
+    }
+
+    private static void assertMatchesFreshSearch(StateGraph graph, String[] names,
+                                                 Map<String, Map<String, Integer>> routes) {
+        GraphSnapshot snapshot = graph.snapshot();
+        CompactGraph fresh = CompactGraph.build(names, routes);
+        for (String source : names) {
+            ShortestPathTree tree = snapshot.getShortestPathTree(source);
+            ShortestPathTree expected = fresh.shortestPathTree(fresh.idOf(source));
+            for (String target : names) {
+                int distance = expected.distanceTo(target);
+                assertEquals(distance, tree.distanceTo(target), source + " -> " + target);
+                if (distance == CompactGraph.UNREACHABLE) continue;
+
+                // Ties may pick a different path; it must still use real routes and add up
+                List<String> path = tree.pathTo(target);
+                assertEquals(source, path.get(0));
+                assertEquals(target, path.get(path.size() - 1));
+                int length = 0;
+                for (int i = 1; i < path.size(); i++) {
+                    Integer leg = routes.get(path.get(i - 1)).get(path.get(i));
+                    assertTrue(leg != null, "no route " + path.get(i - 1) + " -> " + path.get(i));
+                    length += leg;
+                }
+                assertEquals(distance, length, "path " + path);
+            }
+        }
+    }
+}
@@ -0,0 +1,90 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TourPlannerTest {
+    @Test
+    void shortTripsMatchBruteForce() {
+        Random random = new Random(19);
+        for (int trial = 0; trial < 2000; trial++) {
+            int[][] distances = randomDistances(random, 1 + random.nextInt(8));
+            int[] tour = TourPlanner.plan(distances, Long.MAX_VALUE);
+            assertPermutation(tour);
+            assertEquals(bruteForce(distances, identity(distances.length), 1), TourPlanner.length(tour, distances));
+        }
+    }
+
+    // Past the exact limit 2-opt and Or-opt take over; their moves must keep every stop exactly
+    // once and can only shorten the nearest-neighbour start
+    @Test
+    void longTripsNeverLoseToNearestNeighbour() {
+        Random random = new Random(29);
+        for (int trial = 0; trial < 500; trial++) {
+            int[][] distances = randomDistances(random, 13 + random.nextInt(48));
+            int[] tour = TourPlanner.plan(distances, Long.MAX_VALUE);
+            assertPermutation(tour);
+            assertTrue(TourPlanner.length(tour, distances)
+                    <= TourPlanner.length(TourPlanner.nearestNeighbour(distances), distances));
+        }
+    }
+
+    // Planar points half the time, so the triangle inequality holds; arbitrary symmetric
+    // distances, many of them tied, otherwise
+    private static int[][] randomDistances(Random random, int n) {
+        boolean planar = random.nextBoolean();
+        int spread = random.nextBoolean() ? 5 : 1000;
+        double[] x = new double[n];
+        double[] y = new double[n];
+        for (int i = 0; i < n; i++) {
+            x[i] = random.nextInt(1000);
+            y[i] = random.nextInt(1000);
+        }
+        int[][] distances = new int[n][n];
+        for (int i = 0; i < n; i++) {
+            for (int j = i + 1; j < n; j++) {
+                distances[i][j] = planar ? (int) Math.round(Math.hypot(x[i] - x[j], y[i] - y[j]))
+                        : 1 + random.nextInt(spread);
+                distances[j][i] = distances[i][j];
+            }
+        }
+        return distances;
+    }
+
+    private static void assertPermutation(int[] tour) {
+        assertEquals(0, tour[0]);
+        boolean[] seen = new boolean[tour.length];
+        for (int stop : tour) {
+            assertTrue(!seen[stop], "stop " + stop + " visited twice");
+            seen[stop] = true;
+        }
+    }
+
+    private static int[] identity(int n) {
+        int[] order = new int[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = i;
+        }
+        return order;
+    }
+
+    // Shortest open path over every order of order[k..], with order[0..k-1] fixed
+    private static long bruteForce(int[][] distances, int[] order, int k) {
+        if (k >= order.length) return TourPlanner.length(order, distances);
+        long best = Long.MAX_VALUE;
+        for (int i = k; i < order.length; i++) {
+            swap(order, k, i);
+            best = Math.min(best, bruteForce(distances, order, k + 1));
+            swap(order, k, i);
+        }
+        return best;
+    }
+
+    private static void swap(int[] order, int i, int j) {
+        int t = order[i];
+        order[i] = order[j];
+        order[j] = t;
+    }
+}
@@ -0,0 +1,100 @@
+import farmer.bench.Workload;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.HashMap;
+
+// Adapter the JMH benchmarks use to reach the package-private planner classes
+public class PlanningWorkload implements Workload {
+    private StateGraph graph;
+    private ProfitOptimizer optimizer;
+    private CompactGraph routes;
+    private ContractionHierarchy hierarchy;
+
+    private int[] knapsackWeights;
+    private double[] knapsackProfits;
+    private int[] knapsackDays;
+    private int knapsackCapacity;
+
+    @Override
+    public void load(Path dataFile) throws IOException {
+        graph = new StateGraph();
+        optimizer = new ProfitOptimizer();
+        new DataFileLoader(graph, optimizer).load(dataFile);
+        routes = graph.getCompactGraph();
+        hierarchy = ContractionHierarchy.build(routes);
+    }
+
+    @Override
+    public int stateCount() {
+        return routes.size();
+    }
+
+    @Override
+    public String stateName(int index) {
+        return routes.nameOf(index);
+    }
+
+    @Override
+    public Object loadWithReader(Path dataFile) {
+        StateGraph freshGraph = new StateGraph();
+        freshGraph.loadFromTextFile(dataFile.toString(), new ProfitOptimizer());
+        return freshGraph;
+    }
+
+    @Override
+    public Object loadMapped(Path dataFile) throws IOException {
+        return new DataFileLoader(new StateGraph(), new ProfitOptimizer()).load(dataFile);
+    }
+
+    @Override
+    public Object shortestPathTree(int source) {
+        return routes.shortestPathTree(source);
+    }
+
+    @Override
+    public Object route(int source, int target, boolean guided) {
+        return graph.getRouter().route(source, target, guided);
+    }
+
+    @Override
+    public Object hierarchyRoute(int source, int target) {
+        return hierarchy.route(source, target);
+    }
+
+    @Override
+    public Object candidates(int farmer, int vehicleCapacity) {
+        return optimizer.buildCandidates(routes.nameOf(farmer), vehicleCapacity, graph, new HashMap<>());
+    }
+
+    @Override
+    public void prepareKnapsack(int farmer, int vehicleCapacity) {
+        CandidateSet candidates =
+                optimizer.buildCandidates(routes.nameOf(farmer), vehicleCapacity, graph, new HashMap<>());
+        CapacityScale scale = CapacityScale.discretize(candidates.weights(), vehicleCapacity, 1.0);
+        knapsackWeights = scale.itemUnits;
+        knapsackCapacity = scale.capacityUnits;
+        knapsackProfits = candidates.profits();
+        knapsackDays = candidates.days();
+    }
+
+    @Override
+    public Object knapsack() {
+        return KnapsackSolver.solve(knapsackWeights, knapsackProfits, knapsackCapacity);
+    }
+
+    @Override
+    public Object paretoKnapsack() {
+        return ParetoKnapsack.solve(knapsackWeights, knapsackProfits, knapsackDays, knapsackCapacity);
+    }
+
+    @Override
+    public Object optimize(int farmer, int vehicleCapacity) {
+        return optimizer.optimizeDistribution(routes.nameOf(farmer), vehicleCapacity, graph);
+    }
+
+    @Override
+    public Object paretoFront(int farmer, int vehicleCapacity, int maxDays) {
+        return optimizer.optimizeParetoFront(routes.nameOf(farmer), vehicleCapacity, maxDays, graph);
+    }
+}
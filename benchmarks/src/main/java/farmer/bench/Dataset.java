@@ -0,0 +1,54 @@
+package farmer.bench;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+// One generated dataset per parameter combination, written to a temporary file and loaded once
+@State(Scope.Benchmark)
+public class Dataset {
+    @Param({"200", "2000"})
+    public int states;
+
+    @Param({"4000", "10000"})
+    public int routes;
+
+    @Param({"50"})
+    public int foods;
+
+    @Param({"5000"})
+    public int demands;
+
+    @Param({"42"})
+    public long seed;
+
+    public Path dataFile;
+    public Workload workload;
+    // Farmer states the planning benchmarks cycle through, spread across the network
+    public int[] farmers;
+
+    @Setup(Level.Trial)
+    public void generate() throws IOException {
+        dataFile = Files.createTempFile("farmer-bench-", ".txt");
+        new DatasetGenerator(states, routes, foods, demands, seed).write(dataFile);
+        workload = Workload.create();
+        workload.load(dataFile);
+
+        farmers = new int[16];
+        for (int i = 0; i < farmers.length; i++) {
+            farmers[i] = (int) ((long) i * workload.stateCount() / farmers.length);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void delete() throws IOException {
+        Files.deleteIfExists(dataFile);
+    }
+}
@@ -0,0 +1,222 @@
+package farmer.bench;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.Set;
+
+// Writes synthetic datasets in the Data.txt section format. The same parameters and seed always
+// produce the same file. Like a road network, routes are local: each state links to the nearest
+// state placed before it (so the network is connected), and extra routes join random near
+// neighbours. Every route is at least as long as the great-circle distance between its ends.
+public class DatasetGenerator {
+    private static final double EARTH_RADIUS_KM = 6371.0;
+
+    private final int states;
+    private final int routes;
+    private final int foods;
+    private final int demands;
+    private final long seed;
+
+    public DatasetGenerator(int states, int routes, int foods, int demands, long seed) {
+        if (states < 2) {
+            throw new IllegalArgumentException("Need at least two states: " + states);
+        }
+        if (foods < 1) {
+            throw new IllegalArgumentException("Need at least one food item: " + foods);
+        }
+        long maxRoutes = (long) states * (states - 1) / 2;
+        this.states = states;
+        // A connected network needs states - 1 routes; more than one route per pair is pointless
+        this.routes = (int) Math.min(Math.max(routes, states - 1), maxRoutes);
+        this.foods = foods;
+        this.demands = (int) Math.min(demands, (long) states * foods);
+        this.seed = seed;
+    }
+
+    public static String stateName(int index) {
+        return String.format(Locale.ROOT, "State%05d", index);
+    }
+
+    public static String foodName(int index) {
+        return String.format(Locale.ROOT, "Food%04d", index);
+    }
+
+    public void write(Path file) throws IOException {
+        Random random = new Random(seed);
+        try (BufferedWriter buffered = Files.newBufferedWriter(file, StandardCharsets.UTF_8);
+             PrintWriter out = new PrintWriter(buffered)) {
+            double[] latitudes = new double[states];
+            double[] longitudes = new double[states];
+            out.println("// states.csv");
+            out.println("state,latitude,longitude");
+            for (int i = 0; i < states; i++) {
+                latitudes[i] = 8 + random.nextDouble() * 27;
+                longitudes[i] = 68 + random.nextDouble() * 29;
+                out.printf(Locale.ROOT, "%s,%.4f,%.4f%n", stateName(i), latitudes[i], longitudes[i]);
+            }
+
+            out.println();
+            out.println("// routes.csv");
+            out.println("from_state,to_state,distance");
+            Set<Long> pairs = new HashSet<>();
+            SpatialGrid placed = new SpatialGrid(latitudes, longitudes);
+            placed.add(0);
+            for (int i = 1; i < states; i++) {
+                writeRoute(out, random, pairs, placed.nearest(i, 1)[0], i, latitudes, longitudes);
+                placed.add(i);
+            }
+            // Widen the neighbourhood slowly once the nearby pairs run out
+            for (long attempts = 0; pairs.size() < routes; attempts++) {
+                int a = random.nextInt(states);
+                int[] near = placed.nearest(a, (int) Math.min(states - 1, 4 + attempts / states));
+                writeRoute(out, random, pairs, a, near[random.nextInt(near.length)], latitudes, longitudes);
+            }
+
+            out.println();
+            out.println("// food_items.csv");
+            out.println("name,price_per_unit,growing_time,production_cost,weight,transport_cost_per_mile");
+            for (int i = 0; i < foods; i++) {
+                double price = 3 + random.nextDouble() * 97;
+                out.printf(Locale.ROOT, "%s,%.2f,%d,%.2f,%.2f,%.3f%n", foodName(i), price,
+                        2 + random.nextInt(11), price * (0.3 + random.nextDouble() * 0.4),
+                        0.25 * (1 + random.nextInt(8)), 0.005 + random.nextDouble() * 0.015);
+            }
+
+            out.println();
+            out.println("// state_demands.csv");
+            out.println("state,food,demand");
+            Set<Long> demanded = new HashSet<>();
+            while (demanded.size() < demands) {
+                int state = random.nextInt(states);
+                int food = random.nextInt(foods);
+                if (demanded.add((long) state * foods + food)) {
+                    out.printf(Locale.ROOT, "%s,%s,%d%n", stateName(state), foodName(food),
+                            100 * (1 + random.nextInt(50)));
+                }
+            }
+        }
+    }
+
+    private void writeRoute(PrintWriter out, Random random, Set<Long> pairs, int a, int b,
+                            double[] latitudes, double[] longitudes) {
+        long key = (long) Math.min(a, b) * states + Math.max(a, b);
+        if (!pairs.add(key)) return;
+        double detour = 1.1 + random.nextDouble() * 0.3;
+        int distance = (int) Math.ceil(detour * haversine(latitudes[a], longitudes[a], latitudes[b], longitudes[b]));
+        out.printf(Locale.ROOT, "%s,%s,%d%n", stateName(a), stateName(b), Math.max(1, distance));
+    }
+
+    // Uniform grid over the coordinate box for approximate nearest-neighbour lookups
+    private static class SpatialGrid {
+        private final double[] latitudes;
+        private final double[] longitudes;
+        private final int side;
+        private final List<List<Integer>> cells;
+        private double minLat = Double.MAX_VALUE, maxLat = -Double.MAX_VALUE;
+        private double minLon = Double.MAX_VALUE, maxLon = -Double.MAX_VALUE;
+        private int size;
+
+        SpatialGrid(double[] latitudes, double[] longitudes) {
+            this.latitudes = latitudes;
+            this.longitudes = longitudes;
+            for (int i = 0; i < latitudes.length; i++) {
+                minLat = Math.min(minLat, latitudes[i]);
+                maxLat = Math.max(maxLat, latitudes[i]);
+                minLon = Math.min(minLon, longitudes[i]);
+                maxLon = Math.max(maxLon, longitudes[i]);
+            }
+            side = Math.max(1, (int) Math.sqrt(latitudes.length / 2.0));
+            cells = new ArrayList<>(side * side);
+            for (int c = 0; c < side * side; c++) {
+                cells.add(new ArrayList<>());
+            }
+        }
+
+        void add(int v) {
+            cells.get(row(v) * side + column(v)).add(v);
+            size++;
+        }
+
+        // Up to k added points closest to v (excluding v), nearest first
+        int[] nearest(int v, int k) {
+            List<Integer> found = new ArrayList<>();
+            int row = row(v);
+            int column = column(v);
+            int wanted = Math.min(k, size - (contains(v) ? 1 : 0));
+            // Once k points are found, one more ring catches closer points just over a cell edge
+            for (int ring = 0, extra = -1; ring < side && extra != 0; ring++) {
+                for (int r = row - ring; r <= row + ring; r++) {
+                    for (int c = column - ring; c <= column + ring; c++) {
+                        boolean onRing = Math.abs(r - row) == ring || Math.abs(c - column) == ring;
+                        if (!onRing || r < 0 || c < 0 || r >= side || c >= side) continue;
+                        for (int u : cells.get(r * side + c)) {
+                            if (u != v) found.add(u);
+                        }
+                    }
+                }
+                if (extra > 0) extra--;
+                if (extra < 0 && found.size() >= wanted) extra = 1;
+            }
+            found.sort((a, b) -> Double.compare(planarDistance(v, a), planarDistance(v, b)));
+            int[] result = new int[Math.min(k, found.size())];
+            for (int i = 0; i < result.length; i++) {
+                result[i] = found.get(i);
+            }
+            return result;
+        }
+
+        private boolean contains(int v) {
+            return cells.get(row(v) * side + column(v)).contains(v);
+        }
+
+        private double planarDistance(int a, int b) {
+            double dLat = latitudes[a] - latitudes[b];
+            double dLon = (longitudes[a] - longitudes[b]) * Math.cos(Math.toRadians(latitudes[a]));
+            return dLat * dLat + dLon * dLon;
+        }
+
+        private int row(int v) {
+            return cell(latitudes[v], minLat, maxLat);
+        }
+
+        private int column(int v) {
+            return cell(longitudes[v], minLon, maxLon);
+        }
+
+        private int cell(double value, double min, double max) {
+            if (max <= min) return 0;
+            return Math.min(side - 1, (int) ((value - min) / (max - min) * side));
+        }
+    }
+
+    static double haversine(double lat1, double lon1, double lat2, double lon2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1);
+        double h = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
+                * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1, Math.sqrt(h)));
+    }
+
+    // Usage: DatasetGenerator <output file> <states> <routes> <foods> <demands> [seed]
+    public static void main(String[] args) throws IOException {
+        if (args.length < 5) {
+            System.err.println("Usage: DatasetGenerator <output file> <states> <routes> <foods> <demands> [seed]");
+            System.exit(1);
+        }
+        long seed = args.length > 5 ? Long.parseLong(args[5]) : 42L;
+        DatasetGenerator generator = new DatasetGenerator(Integer.parseInt(args[1]), Integer.parseInt(args[2]),
+                Integer.parseInt(args[3]), Integer.parseInt(args[4]), seed);
+        generator.write(Paths.get(args[0]));
+    }
+}
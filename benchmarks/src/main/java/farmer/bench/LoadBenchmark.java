@@ -0,0 +1,30 @@
+package farmer.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+// Parsing the whole data file: the original line reader against the memory-mapped loader
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LoadBenchmark {
+    @Benchmark
+    public Object readerLoader(Dataset data) {
+        return data.workload.loadWithReader(data.dataFile);
+    }
+
+    @Benchmark
+    public Object mappedLoader(Dataset data) throws IOException {
+        return data.workload.loadMapped(data.dataFile);
+    }
+}
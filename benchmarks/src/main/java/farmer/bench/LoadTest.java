@@ -0,0 +1,194 @@
+package farmer.bench;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Closed-loop load generator for the planning server (java Main --serve ...). Each client sends its
+// next request as soon as the previous one answers, mixing optimize, route and (optionally)
+// add-route calls over the server's own state names, then reports throughput and latency
+// percentiles for the answered requests and how many were turned away with 503.
+public class LoadTest {
+    private static final Pattern QUOTED = Pattern.compile("\"((?:[^\"\\\\]|\\\\.)*)\"");
+
+    private final String baseUrl;
+    private final int clients;
+    private final long durationNanos;
+    private final int capacity;
+    private final int routePercent;
+    private final int addRoutePercent;
+
+    public LoadTest(String baseUrl, int clients, int seconds, int capacity, int routePercent, int addRoutePercent) {
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+        this.clients = clients;
+        this.durationNanos = seconds * 1_000_000_000L;
+        this.capacity = capacity;
+        this.routePercent = routePercent;
+        this.addRoutePercent = addRoutePercent;
+    }
+
+    // Latencies of successful requests plus response-class counts, for one client
+    static class ClientResult {
+        long[] latencies = new long[1024];
+        int ok;
+        int rejected;
+        int failed;
+
+        void record(long nanos) {
+            if (ok == latencies.length) latencies = Arrays.copyOf(latencies, ok * 2);
+            latencies[ok++] = nanos;
+        }
+    }
+
+    public void run() throws Exception {
+        List<String> states = fetchStates();
+        if (states.size() < 2) {
+            throw new IllegalStateException("Server reports fewer than two states");
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(clients);
+        List<Future<ClientResult>> futures = new ArrayList<>();
+        long start = System.nanoTime();
+        long deadline = start + durationNanos;
+        for (int c = 0; c < clients; c++) {
+            final long seed = c;
+            futures.add(pool.submit(() -> drive(states, new Random(seed), deadline)));
+        }
+
+        long[] all = new long[0];
+        int ok = 0, rejected = 0, failed = 0;
+        for (Future<ClientResult> future : futures) {
+            ClientResult result = future.get();
+            int from = all.length;
+            all = Arrays.copyOf(all, from + result.ok);
+            System.arraycopy(result.latencies, 0, all, from, result.ok);
+            ok += result.ok;
+            rejected += result.rejected;
+            failed += result.failed;
+        }
+        double elapsedSeconds = (System.nanoTime() - start) / 1e9;
+        pool.shutdown();
+
+        Arrays.sort(all);
+        System.out.printf("%d clients for %.1f s against %s%n", clients, elapsedSeconds, baseUrl);
+        System.out.printf("requests: %d ok, %d rejected (503), %d failed%n", ok, rejected, failed);
+        System.out.printf("throughput: %.1f ok/s%n", ok / elapsedSeconds);
+        if (ok > 0) {
+            System.out.printf("latency: p50=%.2f ms p99=%.2f ms max=%.2f ms%n",
+                    percentile(all, 0.50) / 1e6, percentile(all, 0.99) / 1e6, all[all.length - 1] / 1e6);
+        }
+    }
+
+    private ClientResult drive(List<String> states, Random random, long deadline) {
+        ClientResult result = new ClientResult();
+        while (System.nanoTime() < deadline) {
+            String from = states.get(random.nextInt(states.size()));
+            String to = states.get(random.nextInt(states.size()));
+            int pick = random.nextInt(100);
+            long start = System.nanoTime();
+            int status;
+            try {
+                if (pick < addRoutePercent) {
+                    if (from.equals(to)) continue;
+                    status = request("POST", "/routes", "from=" + encode(from) + "&to=" + encode(to)
+                            + "&distance=" + (100 + random.nextInt(2000)));
+                } else if (pick < addRoutePercent + routePercent) {
+                    status = request("GET", "/route?from=" + encode(from) + "&to=" + encode(to), null);
+                } else {
+                    status = request("GET", "/optimize?state=" + encode(from) + "&capacity=" + capacity, null);
+                }
+            } catch (IOException e) {
+                result.failed++;
+                continue;
+            }
+            if (status == 200) {
+                result.record(System.nanoTime() - start);
+            } else if (status == 503) {
+                result.rejected++;
+            } else {
+                result.failed++;
+            }
+        }
+        return result;
+    }
+
+    // Sends one request and drains the response so the connection can be reused
+    private int request(String method, String path, String form) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(baseUrl + path).openConnection();
+        connection.setRequestMethod(method);
+        if (form != null) {
+            connection.setDoOutput(true);
+            connection.setRequestProperty("Content-Type", "application/x-www-form-urlencoded");
+            try (OutputStream out = connection.getOutputStream()) {
+                out.write(form.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        int status = connection.getResponseCode();
+        InputStream body = status < 400 ? connection.getInputStream() : connection.getErrorStream();
+        if (body != null) {
+            readAll(body);
+        }
+        return status;
+    }
+
+    private List<String> fetchStates() throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(baseUrl + "/states").openConnection();
+        if (connection.getResponseCode() != 200) {
+            throw new IOException("GET /states returned " + connection.getResponseCode());
+        }
+        String json = readAll(connection.getInputStream());
+        List<String> states = new ArrayList<>();
+        Matcher matcher = QUOTED.matcher(json.substring(json.indexOf('[')));
+        while (matcher.find()) {
+            states.add(matcher.group(1).replace("\\\"", "\"").replace("\\\\", "\\"));
+        }
+        return states;
+    }
+
+    private static String readAll(InputStream in) throws IOException {
+        try (InputStream stream = in) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            for (int n; (n = stream.read(buffer)) > 0; ) {
+                out.write(buffer, 0, n);
+            }
+            return new String(out.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static String encode(String s) throws IOException {
+        return URLEncoder.encode(s, "UTF-8");
+    }
+
+    private static long percentile(long[] sorted, double p) {
+        int index = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.err.println("Usage: LoadTest <server url> [clients] [seconds] [capacity] [route %] [add-route %]");
+            System.exit(1);
+        }
+        int clients = args.length > 1 ? Integer.parseInt(args[1]) : 32;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+        int capacity = args.length > 3 ? Integer.parseInt(args[3]) : 1000;
+        int routePercent = args.length > 4 ? Integer.parseInt(args[4]) : 20;
+        int addRoutePercent = args.length > 5 ? Integer.parseInt(args[5]) : 0;
+        new LoadTest(args[0], clients, seconds, capacity, routePercent, addRoutePercent).run();
+    }
+}
@@ -0,0 +1,97 @@
+package farmer.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// Each planning stage on its own, then the whole optimizeDistribution call, per dataset and capacity
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class PlanningBenchmark {
+    @Param({"1000", "20000"})
+    public int vehicleCapacity;
+
+    private int next;
+
+    // The knapsack inputs are built outside the measurement so only the solver is timed
+    @State(Scope.Thread)
+    public static class KnapsackInput {
+        @Setup(Level.Trial)
+        public void prepare(Dataset data, PlanningBenchmark benchmark) {
+            data.workload.prepareKnapsack(data.farmers[0], benchmark.vehicleCapacity);
+        }
+    }
+
+    private int nextFarmer(Dataset data) {
+        next = (next + 1) % data.farmers.length;
+        return data.farmers[next];
+    }
+
+    @Benchmark
+    public Object shortestPathTree(Dataset data) {
+        return data.workload.shortestPathTree(nextFarmer(data));
+    }
+
+    // Single-pair queries between farmers on opposite sides of the network
+    @Benchmark
+    public Object astarRoute(Dataset data) {
+        int source = nextFarmer(data);
+        return data.workload.route(source, data.farmers[data.farmers.length - 1 - next], true);
+    }
+
+    @Benchmark
+    public Object dijkstraRoute(Dataset data) {
+        int source = nextFarmer(data);
+        return data.workload.route(source, data.farmers[data.farmers.length - 1 - next], false);
+    }
+
+    @Benchmark
+    public Object hierarchyRoute(Dataset data) {
+        int source = nextFarmer(data);
+        return data.workload.hierarchyRoute(source, data.farmers[data.farmers.length - 1 - next]);
+    }
+
+    @Benchmark
+    public Object candidateGeneration(Dataset data) {
+        return data.workload.candidates(nextFarmer(data), vehicleCapacity);
+    }
+
+    @Benchmark
+    public Object knapsack(Dataset data, KnapsackInput input) {
+        return data.workload.knapsack();
+    }
+
+    // Same items as knapsack, taken by increasing delivery days: only each cell's newest label can
+    // change, so the work should track knapsack; the full-capacity cell keeps the front
+    @Benchmark
+    public Object paretoKnapsack(Dataset data, KnapsackInput input) {
+        return data.workload.paretoKnapsack();
+    }
+
+    // Shortest-path trees are cached by the graph after the first call for each farmer
+    @Benchmark
+    public Object optimizeDistribution(Dataset data) {
+        return data.workload.optimize(nextFarmer(data), vehicleCapacity);
+    }
+
+    // The whole front up to the default seven-day cut-off, comparable with optimizeDistribution
+    @Benchmark
+    public Object paretoFront(Dataset data) {
+        return data.workload.paretoFront(nextFarmer(data), vehicleCapacity, 7);
+    }
+}
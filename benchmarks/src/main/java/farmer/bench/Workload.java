@@ -0,0 +1,50 @@
+package farmer.bench;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+// The planner's classes live in the unnamed package, which JMH benchmarks cannot; this interface is
+// implemented by PlanningWorkload, which sits in the unnamed package next to them.
+public interface Workload {
+    // Loads the dataset that the planning operations below run against
+    void load(Path dataFile) throws IOException;
+
+    int stateCount();
+
+    String stateName(int index);
+
+    Object loadWithReader(Path dataFile);
+
+    Object loadMapped(Path dataFile) throws IOException;
+
+    // A fresh single-source shortest-path tree, bypassing the per-source cache
+    Object shortestPathTree(int source);
+
+    // A single-pair search; guided=false runs Dijkstra that stops at the target
+    Object route(int source, int target, boolean guided);
+
+    // The same query answered by a contraction hierarchy built during load()
+    Object hierarchyRoute(int source, int target);
+
+    Object candidates(int farmer, int vehicleCapacity);
+
+    // Builds and discretizes the candidates once so knapsack() times the solver alone
+    void prepareKnapsack(int farmer, int vehicleCapacity);
+
+    Object knapsack();
+
+    // The profit-vs-delivery-days front over the same prepared items
+    Object paretoKnapsack();
+
+    Object optimize(int farmer, int vehicleCapacity);
+
+    Object paretoFront(int farmer, int vehicleCapacity, int maxDays);
+
+    static Workload create() {
+        try {
+            return (Workload) Class.forName("PlanningWorkload").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("PlanningWorkload is not on the class path", e);
+        }
+    }
+}